@@ -0,0 +1,43 @@
+package com.painter.models.canvas.spans;
+
+import com.painter.interfaces.SpanOps;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Span operations on the Vector API (jdk.incubator.vector)
+ * Chars are processed as shorts, a full vector at a time,
+ * the tail of the span is processed one cell at a time.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class VectorSpanOps implements SpanOps {
+
+	private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+	@Override
+	public void fill(char[] cells, int from, int to, char symbol) {
+		final ShortVector pattern = ShortVector.broadcast(SPECIES, (short) symbol);
+		final int bound = from + SPECIES.loopBound(to - from);
+		int i = from;
+		for (; i < bound; i += SPECIES.length()) pattern.intoCharArray(cells, i);
+		for (; i < to; ++i) cells[i] = symbol;
+	}
+
+	@Override
+	public int mismatch(char[] cells, int from, int to, char symbol) {
+		final ShortVector pattern = ShortVector.broadcast(SPECIES, (short) symbol);
+		final int bound = from + SPECIES.loopBound(to - from);
+		int i = from;
+		for (; i < bound; i += SPECIES.length()) {
+			VectorMask<Short> different = ShortVector.fromCharArray(SPECIES, cells, i).compare(VectorOperators.NE, pattern);
+			if (different.anyTrue()) return i + different.firstTrue();
+		}
+		while (i < to && cells[i] == symbol) ++i;
+		return i;
+	}
+}
@@ -1,15 +1,58 @@
 package com.painter;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import com.painter.exceptions.parsers.MalformedCommandException;
+import com.painter.factories.RuleFactory;
 import com.painter.managers.Painter2DManager;
+import com.painter.managers.PainterScriptManager;
+import com.painter.parsers.CommandLexer;
+import com.painter.parsers.ScriptConverter;
 
 
 
 public class Main 
 {
 	
-	public static void main( String[] args )
+	public static void main( String[] args ) throws IOException, MalformedCommandException
 	{
 		Painter2DManager app = new Painter2DManager();
-		app.start();
+		if ((args.length == 2 || args.length == 3 && args[2].equals("--optimize")) && args[0].equals("--script")) {
+			final PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false);
+			final PainterScriptManager script = new PainterScriptManager();
+			script.setOptimized(args.length == 3);
+			try (FileChannel in = FileChannel.open(Paths.get(args[1]))) {
+				if (script.run(in, out, System.err) > 0) System.exit(1);
+			}
+		} else if (args.length == 2 && args[0].equals("--binary")) {
+			try (FileChannel in = FileChannel.open(Paths.get(args[1]))) {
+				app.replay(in, System.out);
+			}
+		} else if (args.length == 3 && args[0].equals("--to-binary")) {
+			try (BufferedReader in = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8);
+					FileChannel out = FileChannel.open(Paths.get(args[2]), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				new ScriptConverter(new CommandLexer(RuleFactory.init())).toBinary(in, out);
+			}
+		} else if (args.length == 3 && args[0].equals("--to-text")) {
+			try (FileChannel in = FileChannel.open(Paths.get(args[1]));
+					Writer out = new OutputStreamWriter(Files.newOutputStream(Paths.get(args[2])), StandardCharsets.UTF_8)) {
+				new ScriptConverter(new CommandLexer(RuleFactory.init())).toText(in, out);
+			}
+		} else {
+			app.setIncremental(args.length == 1 && args[0].equals("--ansi"));
+			app.start();
+		}
 	}
 }
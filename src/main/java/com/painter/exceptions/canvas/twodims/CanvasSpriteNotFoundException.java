@@ -0,0 +1,11 @@
+package com.painter.exceptions.canvas.twodims;
+
+public class CanvasSpriteNotFoundException extends Exception {
+
+	private static final long serialVersionUID = -2417536841290177413L;
+	public CanvasSpriteNotFoundException() { super(); }
+	public CanvasSpriteNotFoundException(String message) { super(message); }
+	public CanvasSpriteNotFoundException(String message, Throwable cause) { super(message, cause); }
+	public CanvasSpriteNotFoundException(Throwable cause) { super(cause); }
+
+}
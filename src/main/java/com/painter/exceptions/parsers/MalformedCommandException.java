@@ -0,0 +1,11 @@
+package com.painter.exceptions.parsers;
+
+public class MalformedCommandException extends Exception {
+
+	private static final long serialVersionUID = 7719034471583126305L;
+	public MalformedCommandException() { super(); }
+	public MalformedCommandException(String message) { super(message); }
+	public MalformedCommandException(String message, Throwable cause) { super(message, cause); }
+	public MalformedCommandException(Throwable cause) { super(cause); }
+
+}
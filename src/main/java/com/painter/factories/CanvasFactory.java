@@ -12,6 +12,13 @@ import com.painter.exceptions.factories.CanvasNotSupportedException;
 import com.painter.interfaces.Canvas;
 import com.painter.models.canvas.BasicCanvas;
 import com.painter.models.canvas.TwoDimCanvas;
+import com.painter.models.canvas.stores.AdaptivePixelStore;
+import com.painter.models.canvas.stores.MappedPixelStore;
+import com.painter.models.canvas.stores.PackedPixelStore;
+import com.painter.models.canvas.stores.QuadTreePixelStore;
+import com.painter.models.canvas.stores.RunLengthPixelStore;
+import com.painter.models.canvas.stores.ScenePixelStore;
+import com.painter.models.canvas.stores.TiledPixelStore;
 
 
 public class CanvasFactory {
@@ -50,8 +57,29 @@ public class CanvasFactory {
 	public static CanvasFactory init() {
 		CanvasFactory cf = new CanvasFactory();
 		cf.addBoard("BASE", new BasicCanvas());
-		cf.addBoard("2D", new TwoDimCanvas());		
+		cf.addBoard("2D", cf.indexedCanvas());
+		cf.addBoard("2D-PACKED", new TwoDimCanvas(new PackedPixelStore()));
+		cf.addBoard("2D-MAPPED", new TwoDimCanvas(new MappedPixelStore()));
+		cf.addBoard("2D-TILED", new TwoDimCanvas(new TiledPixelStore()));
+		cf.addBoard("2D-QUAD", new TwoDimCanvas(new QuadTreePixelStore()));
+		cf.addBoard("2D-RLE", new TwoDimCanvas(new RunLengthPixelStore()));
+		cf.addBoard("2D-ADAPTIVE", new TwoDimCanvas(new AdaptivePixelStore()));
+		cf.addBoard("2D-PARALLEL", cf.parallelCanvas());
+		cf.addBoard("2D-SCENE", new TwoDimCanvas(new ScenePixelStore()));
 		return cf;
 	}
 	
+	private TwoDimCanvas indexedCanvas() {
+		TwoDimCanvas canvas = new TwoDimCanvas();
+		canvas.enableOccupancyIndex();
+		return canvas;
+	}
+	
+	private TwoDimCanvas parallelCanvas() {
+		final long PARALLEL_FILL_THRESHOLD = 1L << 20;
+		TwoDimCanvas canvas = new TwoDimCanvas();
+		canvas.setParallelFillThreshold(PARALLEL_FILL_THRESHOLD);
+		return canvas;
+	}
+	
 }
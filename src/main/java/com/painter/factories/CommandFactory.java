@@ -13,11 +13,15 @@ import com.painter.exceptions.canvas.base.CanvasDimensionNotSupportedException;
 import com.painter.exceptions.canvas.base.CanvasNotEmptyElementException;
 import com.painter.exceptions.canvas.base.CanvasOutOfBordersException;
 import com.painter.exceptions.canvas.twodims.CanvasObliqueLineNotSupportedException;
+import com.painter.exceptions.canvas.twodims.CanvasSpriteNotFoundException;
 import com.painter.exceptions.factories.CanvasNotSupportedException;
 import com.painter.exceptions.factories.CommandNotSupportedException;
 import com.painter.interfaces.Canvas;
 import com.painter.interfaces.Command;
+import com.painter.interfaces.RecordCommand;
+import com.painter.models.canvas.BasicCanvas;
 import com.painter.models.canvas.TwoDimCanvas;
+import com.painter.parsers.CommandRecord;
 import com.painter.utilities.NullCheckUtilities;
 
 public class CommandFactory {
@@ -40,17 +44,87 @@ public class CommandFactory {
 	 * (color used is 'x')
 	 */
 	public static final String cmdR = "R";
+	/**
+	 * Create a new segment in any direction from (x1,y1) to (x2,y2)
+	 * Usage: D x1 y1 x2 y2
+	 * (color used is 'x')
+	 */
+	public static final String cmdD = "D";
+	/**
+	 * Create a new filled rectangle, whose upper left corner is
+	 * (x1,y1) and lower right corner (x2,y2)
+	 * Usage: F x1 y1 x2 y2
+	 * (color used is 'x')
+	 */
+	public static final String cmdF = "F";
+	/**
+	 * Create a new ellipse centered in (x,y) with horizontal radius rx
+	 * and vertical radius ry (a circle when rx equals ry)
+	 * Usage: E x y rx ry
+	 * (color used is 'x')
+	 */
+	public static final String cmdE = "E";
+	/**
+	 * Capture the area between (x1,y1) and (x2,y2) as the sprite n
+	 * Usage: K x1 y1 x2 y2 n
+	 */
+	public static final String cmdK = "K";
+	/**
+	 * Stamp the sprite n with its upper left corner in (x,y)
+	 * Usage: S x y n
+	 */
+	public static final String cmdS = "S";
+	/**
+	 * Copy the area between (x1,y1) and (x2,y2) with its upper left corner in (x,y)
+	 * Usage: Y x1 y1 x2 y2 x y
+	 */
+	public static final String cmdY = "Y";
 	/**
 	 * Fill the entire area connected to (x,y) with color 'c'
 	 * B x y c
 	 */
 	public static final String cmdB = "B";
+	/**
+	 * Repeat a command n times, moving its coordinates by (dx,dy) at every repetition
+	 * Usage: X n dx dy command
+	 * (e.g. X 10 0 2 L 1 1 20 1 draws 10 lines, one every 2 rows)
+	 */
+	public static final String cmdX = "X";
+	/**
+	 * Print only the window of width w and height h whose upper left corner is (x,y)
+	 * Usage: V x y w h
+	 */
+	public static final String cmdV = "V";
+	/**
+	 * Print a preview downsampled 2^level times (1 to 3), 0 to print the canvas again
+	 * Usage: Z level
+	 */
+	public static final String cmdZ = "Z";
+	/**
+	 * Checkpoint: print the canvas (a script prints it at the end only)
+	 * Usage: P
+	 */
+	public static final String cmdP = "P";
 	/**
 	 * Quit
 	 */
 	public static final String cmdQ = "Q";
 
+	private static final int OPCODES = 128;
+	// arguments of a loop body: moved along x, along y or kept
+	private static final char SHIFT_X = 'x';
+	private static final char SHIFT_Y = 'y';
+	private static final char KEEP = '.';
+
 	private final HashMap<String, Command> commands = new HashMap<>();
+	// decoded commands, indexed by opcode
+	private final RecordCommand[] opcodes = new RecordCommand[OPCODES];
+	// arguments moved by a loop, indexed by opcode (null when the command cannot be repeated)
+	private final char[][] loopShifts = new char[OPCODES][];
+	// reused for every repetition of a loop
+	private final CommandRecord loopBody = new CommandRecord();
+	// why the canvas rejected the last command, null if it was applied
+	private Exception rejection = null;
 
 	private CommandFactory() {
 	}
@@ -63,6 +137,31 @@ public class CommandFactory {
 	 */
 	public void addCommand(String name, Command command) {
 		commands.put(name, command);
+		// a replaced command is no longer dispatched by opcode
+		if (name.length() == 1 && name.charAt(0) < OPCODES) opcodes[name.charAt(0)] = null;
+	}
+
+	/**
+	 * Adding the command executed on decoded records
+	 * 
+	 * @param opcode - Command letter
+	 * @param command - Class implements the new command
+	 */
+	public void addCommand(char opcode, RecordCommand command) {
+		if (opcode >= OPCODES) throw new IllegalArgumentException();
+		opcodes[opcode] = command;
+	}
+	
+	/**
+	 * Allow a command in a loop
+	 * 
+	 * @param opcode - Command letter
+	 * @param shifts - One char per argument: x moved by dx, y moved by dy, . kept
+	 */
+	public void setLoopShifts(char opcode, String shifts) {
+		if (NullCheckUtilities.isNull(shifts)) throw new NullPointerException();
+		if (opcode >= OPCODES || !shifts.matches("[" + SHIFT_X + SHIFT_Y + KEEP + "]*")) throw new IllegalArgumentException();
+		loopShifts[opcode] = shifts.toCharArray();
 	}
 	
 	/**
@@ -70,6 +169,7 @@ public class CommandFactory {
 	 * Potentially we can use the Injection of Canvas (not implemented)
 	 * The input is checked by a Rule defined
 	 * If the input is correct -> execute the command on the canvas
+	 * and mark the command boundary on the canvas
 	 * 
 	 * @param board
 	 * @param inputCmd
@@ -81,66 +181,310 @@ public class CommandFactory {
 		if (NullCheckUtilities.isNull(board, commandParts)) throw new NullPointerException();
 		if (commandParts.length == 0) throw new NullPointerException();
 		String commandKey = commandParts[0];
+		rejection = null;
 		if (commands.containsKey(commandKey)) {
 			commands.get(commandKey).execute(board, commandParts);
+			if (board instanceof BasicCanvas) ((BasicCanvas) board).commit();
 		} else throw new CommandNotSupportedException();
 	}
 
+	/**
+	 * Execute a decoded command
+	 * Commands added only for split command lines get the record as parts
+	 * 
+	 * @param board
+	 * @param record - Command decoded by the CommandLexer
+	 * @throws NullPointerException
+	 * @throws CanvasNotSupportedException 
+	 * @throws CommandNotSupportedException
+	 */
+	public void executeCommand(Canvas board, CommandRecord record) throws NullPointerException, CommandNotSupportedException, CanvasNotSupportedException{
+		if (NullCheckUtilities.isNull(board, record)) throw new NullPointerException();
+		rejection = null;
+		dispatch(board, record);
+		if (board instanceof BasicCanvas) ((BasicCanvas) board).commit();
+	}
+
+	private void dispatch(Canvas board, CommandRecord record) throws CommandNotSupportedException, CanvasNotSupportedException {
+		final char opcode = record.getOpcode();
+		if (opcode < OPCODES && opcodes[opcode] != null) opcodes[opcode].execute(board, record);
+		else {
+			final Command command = commands.get(String.valueOf(opcode));
+			if (command == null) throw new CommandNotSupportedException();
+			command.execute(board, record.toParts());
+		}
+	}
+
+	/**
+	 * Commands rejected by the canvas (out of borders, not empty element, ...)
+	 * leave it unchanged and are not errors of the command line
+	 * 
+	 * @return the cause of the rejection of the last command, null if it was applied
+	 */
+	public Exception getRejection() {
+		return rejection;
+	}
+
 	/**
 	 *  Factory pattern 
 	 *  Command pattern
 	 *  Interpreter pattern
 	 *  Commands are added using lambdas (Functional interfaces)
+	 *  once for split command lines and once for decoded records
 	 */
 	public static CommandFactory init() {
 		CommandFactory cf = new CommandFactory();	
-		cf.addCommand(cmdQ, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdQ(canvas, commandParts));
-		cf.addCommand(cmdC, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdC(canvas, commandParts));
-		cf.addCommand(cmdB, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdB(canvas, commandParts));
-		cf.addCommand(cmdL, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdL(canvas, commandParts));
-		cf.addCommand(cmdR, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdR(canvas, commandParts));		
+		cf.addCommand(cmdQ, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdQ(canvas));
+		cf.addCommand(cmdP, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdP(canvas));
+		cf.addCommand(cmdV, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdV(canvas, 
+				Integer.valueOf(commandParts[1]), Integer.valueOf(commandParts[2]), Integer.valueOf(commandParts[3]), Integer.valueOf(commandParts[4])));
+		cf.addCommand(cmdZ, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdZ(canvas, Integer.valueOf(commandParts[1])));
+		cf.addCommand(cmdX, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdX(canvas, toRecord(commandParts)));
+		cf.addCommand(cmdC, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdC(canvas, 
+				Integer.valueOf(commandParts[1]), Integer.valueOf(commandParts[2])));
+		cf.addCommand(cmdB, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdB(canvas, 
+				Integer.valueOf(commandParts[1]), Integer.valueOf(commandParts[2]), commandParts[3].charAt(0)));
+		cf.addCommand(cmdL, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdL(canvas, 
+				Integer.valueOf(commandParts[1]), Integer.valueOf(commandParts[2]), Integer.valueOf(commandParts[3]), Integer.valueOf(commandParts[4])));
+		cf.addCommand(cmdR, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdR(canvas, 
+				Integer.valueOf(commandParts[1]), Integer.valueOf(commandParts[2]), Integer.valueOf(commandParts[3]), Integer.valueOf(commandParts[4])));
+		cf.addCommand(cmdD, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdD(canvas, 
+				Integer.valueOf(commandParts[1]), Integer.valueOf(commandParts[2]), Integer.valueOf(commandParts[3]), Integer.valueOf(commandParts[4])));
+		cf.addCommand(cmdF, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdF(canvas, 
+				Integer.valueOf(commandParts[1]), Integer.valueOf(commandParts[2]), Integer.valueOf(commandParts[3]), Integer.valueOf(commandParts[4])));
+		cf.addCommand(cmdE, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdE(canvas, 
+				Integer.valueOf(commandParts[1]), Integer.valueOf(commandParts[2]), Integer.valueOf(commandParts[3]), Integer.valueOf(commandParts[4])));
+		cf.addCommand(cmdK, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdK(canvas, 
+				Integer.valueOf(commandParts[1]), Integer.valueOf(commandParts[2]), Integer.valueOf(commandParts[3]), Integer.valueOf(commandParts[4]), commandParts[5]));
+		cf.addCommand(cmdS, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdS(canvas, 
+				Integer.valueOf(commandParts[1]), Integer.valueOf(commandParts[2]), commandParts[3]));
+		cf.addCommand(cmdY, (Canvas canvas, String[] commandParts) -> cf.twoDimCanvasCmdY(canvas, 
+				Integer.valueOf(commandParts[1]), Integer.valueOf(commandParts[2]), Integer.valueOf(commandParts[3]), Integer.valueOf(commandParts[4]),
+				Integer.valueOf(commandParts[5]), Integer.valueOf(commandParts[6])));
+
+		cf.addCommand(cmdQ.charAt(0), (Canvas canvas, CommandRecord r) -> cf.twoDimCanvasCmdQ(canvas));
+		cf.addCommand(cmdP.charAt(0), (Canvas canvas, CommandRecord r) -> cf.twoDimCanvasCmdP(canvas));
+		cf.addCommand(cmdV.charAt(0), (Canvas canvas, CommandRecord r) -> cf.twoDimCanvasCmdV(canvas, r.getNumber(0), r.getNumber(1), r.getNumber(2), r.getNumber(3)));
+		cf.addCommand(cmdZ.charAt(0), (Canvas canvas, CommandRecord r) -> cf.twoDimCanvasCmdZ(canvas, r.getNumber(0)));
+		cf.addCommand(cmdX.charAt(0), (Canvas canvas, CommandRecord r) -> cf.twoDimCanvasCmdX(canvas, r));
+		cf.addCommand(cmdC.charAt(0), (Canvas canvas, CommandRecord r) -> cf.twoDimCanvasCmdC(canvas, r.getNumber(0), r.getNumber(1)));
+		cf.addCommand(cmdB.charAt(0), (Canvas canvas, CommandRecord r) -> cf.twoDimCanvasCmdB(canvas, r.getNumber(0), r.getNumber(1), r.getSymbol(2)));
+		cf.addCommand(cmdL.charAt(0), (Canvas canvas, CommandRecord r) -> cf.twoDimCanvasCmdL(canvas, r.getNumber(0), r.getNumber(1), r.getNumber(2), r.getNumber(3)));
+		cf.addCommand(cmdR.charAt(0), (Canvas canvas, CommandRecord r) -> cf.twoDimCanvasCmdR(canvas, r.getNumber(0), r.getNumber(1), r.getNumber(2), r.getNumber(3)));
+		cf.addCommand(cmdD.charAt(0), (Canvas canvas, CommandRecord r) -> cf.twoDimCanvasCmdD(canvas, r.getNumber(0), r.getNumber(1), r.getNumber(2), r.getNumber(3)));
+		cf.addCommand(cmdF.charAt(0), (Canvas canvas, CommandRecord r) -> cf.twoDimCanvasCmdF(canvas, r.getNumber(0), r.getNumber(1), r.getNumber(2), r.getNumber(3)));
+		cf.addCommand(cmdE.charAt(0), (Canvas canvas, CommandRecord r) -> cf.twoDimCanvasCmdE(canvas, r.getNumber(0), r.getNumber(1), r.getNumber(2), r.getNumber(3)));
+		cf.addCommand(cmdK.charAt(0), (Canvas canvas, CommandRecord r) -> cf.twoDimCanvasCmdK(canvas, r.getNumber(0), r.getNumber(1), r.getNumber(2), r.getNumber(3), String.valueOf(r.getSymbol(4))));
+		cf.addCommand(cmdS.charAt(0), (Canvas canvas, CommandRecord r) -> cf.twoDimCanvasCmdS(canvas, r.getNumber(0), r.getNumber(1), String.valueOf(r.getSymbol(2))));
+		cf.addCommand(cmdY.charAt(0), (Canvas canvas, CommandRecord r) -> cf.twoDimCanvasCmdY(canvas, r.getNumber(0), r.getNumber(1), r.getNumber(2), r.getNumber(3), r.getNumber(4), r.getNumber(5)));
+		cf.setLoopShifts(cmdL.charAt(0), "xyxy");
+		cf.setLoopShifts(cmdR.charAt(0), "xyxy");
+		cf.setLoopShifts(cmdD.charAt(0), "xyxy");
+		cf.setLoopShifts(cmdF.charAt(0), "xyxy");
+		cf.setLoopShifts(cmdE.charAt(0), "xy..");
+		cf.setLoopShifts(cmdB.charAt(0), "xy.");
+		cf.setLoopShifts(cmdK.charAt(0), "xyxy.");
+		cf.setLoopShifts(cmdS.charAt(0), "xy.");
+		cf.setLoopShifts(cmdY.charAt(0), "....xy");
 		return cf;
 	}
 
-	private void twoDimCanvasCmdQ(Canvas board, String[] commandParts) throws CanvasNotSupportedException {
+	private void twoDimCanvasCmdQ(Canvas board) throws CanvasNotSupportedException {
 		if (!(board instanceof TwoDimCanvas)) throw new CanvasNotSupportedException();
 		System.exit(0);
 	}
 
-	private void twoDimCanvasCmdC(Canvas board, String[] commandParts) throws CanvasNotSupportedException {
-		if (!(board instanceof TwoDimCanvas)) throw new CanvasNotSupportedException();		final TwoDimCanvas canvas = (TwoDimCanvas)board;
+	/**
+	 * The body is decoded once, every repetition only moves its coordinates
+	 * and runs the command: a rejected repetition does not stop the loop.
+	 * Steps only move forward, so the loop ends after the first repetition
+	 * whose coordinates leave the canvas: every later one would leave it too.
+	 */
+	private void twoDimCanvasCmdX(Canvas board, CommandRecord loop) throws CanvasNotSupportedException, CommandNotSupportedException {
+		if (!(board instanceof TwoDimCanvas)) throw new CanvasNotSupportedException();
+		final int count = loop.getNumber(0);
+		final long dx = loop.getNumber(1);
+		final long dy = loop.getNumber(2);
+		final char opcode = loop.getSymbol(3);
+		final char[] shifts = opcode < OPCODES ? loopShifts[opcode] : null;
+		if (shifts == null || shifts.length != loop.getArgCount() - 4) throw new CommandNotSupportedException();
+		final long repetitions = Math.min(count, usefulRepetitions((TwoDimCanvas)board, loop, shifts, dx, dy));
+		Exception rejected = null;
+		for (int i = 0; i < repetitions; ++i) {
+			loopBody.reset(opcode);
+			for (int arg = 0; arg < shifts.length; ++arg) {
+				if (loop.isSymbol(4 + arg)) {
+					loopBody.addSymbol(loop.getSymbol(4 + arg));
+					continue;
+				}
+				final long value = loop.getNumber(4 + arg) + i * (shifts[arg] == SHIFT_X ? dx : shifts[arg] == SHIFT_Y ? dy : 0);
+				if (value > Integer.MAX_VALUE) {
+					rejection = rejected;
+					return;
+				}
+				loopBody.addNumber((int) value);
+			}
+			rejection = null;
+			dispatch(board, loopBody);
+			if (rejection != null) rejected = rejection;
+		}
+		rejection = rejected;
+	}
+
+	// Repetitions up to the first one leaving the canvas
+	private static long usefulRepetitions(TwoDimCanvas canvas, CommandRecord loop, char[] shifts, long dx, long dy) {
+		long last = Long.MAX_VALUE;
+		for (int arg = 0; arg < shifts.length; ++arg) {
+			final long step = shifts[arg] == SHIFT_X ? dx : shifts[arg] == SHIFT_Y ? dy : 0;
+			if (step == 0 || loop.isSymbol(4 + arg)) continue;
+			final long limit = shifts[arg] == SHIFT_X ? canvas.getWidth() : canvas.getHeight();
+			last = Math.min(last, Math.max(-1, Math.floorDiv(limit - loop.getNumber(4 + arg), step)));
+		}
+		if (last != Long.MAX_VALUE) return last + 2;
+		// nothing moves: painting only blank points, a repetition changes nothing,
+		// but a copy over its own source spreads by its offset every time
+		return loop.getSymbol(3) == cmdY.charAt(0) ? Math.max(canvas.getWidth(), canvas.getHeight()) + 1L : 1;
+	}
+
+	// split command line as a record: numbers and one char symbols
+	private static CommandRecord toRecord(String[] commandParts) {
+		final CommandRecord record = new CommandRecord();
+		record.reset(commandParts[0].charAt(0));
+		for (int i = 1; i < commandParts.length; ++i) {
+			if (commandParts[i].matches("\\d+")) record.addNumber(Integer.valueOf(commandParts[i]));
+			else record.addSymbol(commandParts[i].charAt(0));
+		}
+		return record;
+	}
+
+	private void twoDimCanvasCmdV(Canvas board, int x, int y, int w, int h) throws CanvasNotSupportedException {
+		if (!(board instanceof TwoDimCanvas)) throw new CanvasNotSupportedException();
+		final TwoDimCanvas canvas = (TwoDimCanvas)board;
 		try {
-			// in position 0 there is the command
-			canvas.setNewDimensions(Integer.valueOf(commandParts[1]),Integer.valueOf(commandParts[2]));
-		} catch (NullPointerException | CanvasDimensionNotSupportedException  e) {}
+			canvas.setViewport(x, y, w, h);
+		} catch (NullPointerException | CanvasOutOfBordersException | CanvasDimensionNotSupportedException e) {
+			rejection = e;
+		}
 	}
 
-	private void twoDimCanvasCmdB(Canvas board, String[] commandParts) throws CanvasNotSupportedException  {
+	private void twoDimCanvasCmdZ(Canvas board, int level) throws CanvasNotSupportedException {
 		if (!(board instanceof TwoDimCanvas)) throw new CanvasNotSupportedException();
 		final TwoDimCanvas canvas = (TwoDimCanvas)board;
 		try {
-			canvas.bucketTool(Integer.valueOf(commandParts[1]),Integer.valueOf(commandParts[2]), commandParts[3].charAt(0));
-		} catch (NullPointerException | CanvasOutOfBordersException e) {}
+			canvas.setPreviewLevel(level);
+		} catch (NullPointerException | CanvasDimensionNotSupportedException e) {
+			rejection = e;
+		}
 	}
 
-	private void twoDimCanvasCmdL(Canvas board, String[] commandParts) throws CanvasNotSupportedException {
+	// the canvas is printed by the caller
+	private void twoDimCanvasCmdP(Canvas board) throws CanvasNotSupportedException {
+		if (!(board instanceof TwoDimCanvas)) throw new CanvasNotSupportedException();
+	}
+
+	private void twoDimCanvasCmdC(Canvas board, int w, int h) throws CanvasNotSupportedException {
+		if (!(board instanceof TwoDimCanvas)) throw new CanvasNotSupportedException();
+		final TwoDimCanvas canvas = (TwoDimCanvas)board;
+		try {
+			canvas.setNewDimensions(w, h);
+		} catch (NullPointerException | CanvasDimensionNotSupportedException  e) {
+			rejection = e;
+		}
+	}
+
+	private void twoDimCanvasCmdB(Canvas board, int x, int y, char color) throws CanvasNotSupportedException  {
+		if (!(board instanceof TwoDimCanvas)) throw new CanvasNotSupportedException();
+		final TwoDimCanvas canvas = (TwoDimCanvas)board;
+		try {
+			canvas.bucketTool(x, y, color);
+		} catch (NullPointerException | CanvasOutOfBordersException e) {
+			rejection = e;
+		}
+	}
+
+	private void twoDimCanvasCmdL(Canvas board, int x1, int y1, int x2, int y2) throws CanvasNotSupportedException {
 		if (!(board instanceof TwoDimCanvas)) throw new CanvasNotSupportedException();
 		final TwoDimCanvas canvas = (TwoDimCanvas)board;
 		final Character LINE_COLOR = 'x';
 		try {
-			canvas.drawLine(Integer.valueOf(commandParts[1]),Integer.valueOf(commandParts[2]),
-						    Integer.valueOf(commandParts[3]),Integer.valueOf(commandParts[4]), LINE_COLOR);
+			canvas.drawLine(x1, y1, x2, y2, LINE_COLOR);
 		} catch (NullPointerException | CanvasNotEmptyElementException | 
-				CanvasOutOfBordersException | CanvasObliqueLineNotSupportedException e) {}
+				CanvasOutOfBordersException | CanvasObliqueLineNotSupportedException e) {
+			rejection = e;
+		}
+	}
+
+	private void twoDimCanvasCmdR(Canvas board, int x1, int y1, int x2, int y2) throws CanvasNotSupportedException {
+		if (!(board instanceof TwoDimCanvas)) throw new CanvasNotSupportedException();
+		final TwoDimCanvas canvas = (TwoDimCanvas)board;
+		final Character RECT_COLOR = 'x';
+		try {
+			canvas.drawRectangle(x1, y1, x2, y2, RECT_COLOR);
+		} catch ( NullPointerException | CanvasNotEmptyElementException | CanvasOutOfBordersException e) {
+			rejection = e;
+		}
+	}
+
+	private void twoDimCanvasCmdD(Canvas board, int x1, int y1, int x2, int y2) throws CanvasNotSupportedException {
+		if (!(board instanceof TwoDimCanvas)) throw new CanvasNotSupportedException();
+		final TwoDimCanvas canvas = (TwoDimCanvas)board;
+		final Character LINE_COLOR = 'x';
+		try {
+			canvas.drawSegment(x1, y1, x2, y2, LINE_COLOR);
+		} catch (NullPointerException | CanvasNotEmptyElementException | CanvasOutOfBordersException e) {
+			rejection = e;
+		}
 	}
 
-	private void twoDimCanvasCmdR(Canvas board, String[] commandParts) throws CanvasNotSupportedException {
+	private void twoDimCanvasCmdF(Canvas board, int x1, int y1, int x2, int y2) throws CanvasNotSupportedException {
 		if (!(board instanceof TwoDimCanvas)) throw new CanvasNotSupportedException();
 		final TwoDimCanvas canvas = (TwoDimCanvas)board;
 		final Character RECT_COLOR = 'x';
 		try {
-			canvas.drawRectangle(Integer.valueOf(commandParts[1]),Integer.valueOf(commandParts[2]),
-				    Integer.valueOf(commandParts[3]),Integer.valueOf(commandParts[4]), RECT_COLOR);
-		} catch ( NullPointerException | CanvasNotEmptyElementException | CanvasOutOfBordersException e) {}
+			canvas.fillRectangle(x1, y1, x2, y2, RECT_COLOR);
+		} catch (NullPointerException | CanvasNotEmptyElementException | CanvasOutOfBordersException e) {
+			rejection = e;
+		}
+	}
+
+	private void twoDimCanvasCmdE(Canvas board, int x, int y, int rx, int ry) throws CanvasNotSupportedException {
+		if (!(board instanceof TwoDimCanvas)) throw new CanvasNotSupportedException();
+		final TwoDimCanvas canvas = (TwoDimCanvas)board;
+		final Character ELLIPSE_COLOR = 'x';
+		try {
+			canvas.drawEllipse(x, y, rx, ry, ELLIPSE_COLOR);
+		} catch (NullPointerException | CanvasNotEmptyElementException | CanvasOutOfBordersException e) {
+			rejection = e;
+		}
+	}
+
+	private void twoDimCanvasCmdK(Canvas board, int x1, int y1, int x2, int y2, String name) throws CanvasNotSupportedException {
+		if (!(board instanceof TwoDimCanvas)) throw new CanvasNotSupportedException();
+		final TwoDimCanvas canvas = (TwoDimCanvas)board;
+		try {
+			canvas.captureSprite(x1, y1, x2, y2, name);
+		} catch (NullPointerException | CanvasOutOfBordersException e) {
+			rejection = e;
+		}
+	}
+
+	private void twoDimCanvasCmdS(Canvas board, int x, int y, String name) throws CanvasNotSupportedException {
+		if (!(board instanceof TwoDimCanvas)) throw new CanvasNotSupportedException();
+		final TwoDimCanvas canvas = (TwoDimCanvas)board;
+		try {
+			canvas.stampSprite(x, y, name);
+		} catch (NullPointerException | CanvasNotEmptyElementException | CanvasSpriteNotFoundException e) {
+			rejection = e;
+		}
+	}
+
+	private void twoDimCanvasCmdY(Canvas board, int x1, int y1, int x2, int y2, int x, int y) throws CanvasNotSupportedException {
+		if (!(board instanceof TwoDimCanvas)) throw new CanvasNotSupportedException();
+		final TwoDimCanvas canvas = (TwoDimCanvas)board;
+		try {
+			canvas.copyArea(x1, y1, x2, y2, x, y);
+		} catch (NullPointerException | CanvasOutOfBordersException | CanvasNotEmptyElementException e) {
+			rejection = e;
+		}
 	}
 }
@@ -22,6 +22,7 @@ public class RuleFactory {
 	public static final String COMMAND = "COMMAND";
 	public static final String START = "START";
 	public static final String END = "END";
+	public static final String NESTED = "NESTED";
 	
 	private final String REGEX_NUMERIC_PATTERN = "(\\d+)";
 	private final String REGEX_SYMBOLIC_PATTERN = "([a-z])";
@@ -29,8 +30,11 @@ public class RuleFactory {
 	private final String REGEX_START_PATTERN = "^";
 	private final String REGEX_END_PATTERN = "$";
 	private final String REGEX_COMMAND_PATTERN = "([A-Z])";
+	private final String REGEX_NESTED_PATTERN = "([A-Z](?:\\s\\S+)*)";
 	
 	private final HashMap<String, Predicate> predicates = new HashMap<>();
+	// changed by every added rule
+	private int version = 0;
 
 	private RuleFactory() {
 	}
@@ -44,6 +48,14 @@ public class RuleFactory {
 	public void addRule(String key, Predicate predicate) throws NullPointerException{
 		if (NullCheckUtilities.isNull(key, predicate)) throw new NullPointerException();
 		predicates.put(key, predicate);
+		++version;
+	}
+
+	/**
+	 * @return a number which changes when a rule is added or replaced
+	 */
+	public int getVersion() {
+		return version;
 	}
 	
 	/**
@@ -81,10 +93,21 @@ public class RuleFactory {
 		rf.addRule(START, () -> rf.start());
 		rf.addRule(END, () -> rf.end());
 		rf.addRule(COMMAND, () -> rf.command());
+		rf.addRule(NESTED, () -> rf.nested());
 		rf.addRule(CommandFactory.cmdB, () -> rf.cmdB());
 		rf.addRule(CommandFactory.cmdL, () -> rf.cmdL());
 		rf.addRule(CommandFactory.cmdR, () -> rf.cmdR());
 		rf.addRule(CommandFactory.cmdC, () -> rf.cmdC());
+		rf.addRule(CommandFactory.cmdD, () -> rf.cmdD());
+		rf.addRule(CommandFactory.cmdF, () -> rf.cmdF());
+		rf.addRule(CommandFactory.cmdE, () -> rf.cmdE());
+		rf.addRule(CommandFactory.cmdK, () -> rf.cmdK());
+		rf.addRule(CommandFactory.cmdS, () -> rf.cmdS());
+		rf.addRule(CommandFactory.cmdY, () -> rf.cmdY());
+		rf.addRule(CommandFactory.cmdX, () -> rf.cmdX());
+		rf.addRule(CommandFactory.cmdV, () -> rf.cmdV());
+		rf.addRule(CommandFactory.cmdZ, () -> rf.cmdZ());
+		rf.addRule(CommandFactory.cmdP, () -> rf.cmdP());
 		rf.addRule(CommandFactory.cmdQ, () -> rf.cmdQ());
 		
 		return rf;
@@ -95,6 +118,18 @@ public class RuleFactory {
 	 * 
 	 */
 	
+	private Rule cmdV() {
+		return command().add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(numeric()).add(end());
+	}
+	
+	private Rule cmdZ() {
+		return command().add(space()).add(numeric()).add(end());
+	}
+	
+	private Rule cmdP() {
+		return command().add(end()); // No parameters
+	}
+	
 	private Rule cmdQ() {
 		return command().add(end()); // No parameters
 	}
@@ -115,10 +150,43 @@ public class RuleFactory {
 		return command().add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(numeric()).add(end());
 	}
 	
+	private Rule cmdD() {
+		return command().add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(numeric()).add(end());
+	}
+	
+	private Rule cmdF() {
+		return command().add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(numeric()).add(end());
+	}
+	
+	private Rule cmdE() {
+		return command().add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(numeric()).add(end());
+	}
+	
+	private Rule cmdK() {
+		return command().add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(symbolic()).add(end());
+	}
+	
+	private Rule cmdS() {
+		return command().add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(symbolic()).add(end());
+	}
+	
+	private Rule cmdY() {
+		return command().add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(numeric()).add(end());
+	}
+	
+	private Rule cmdX() {
+		return command().add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(numeric()).add(space()).add(nested()).add(end());
+	}
+	
 	private Rule command() {
 		return start().add(new Rule(REGEX_COMMAND_PATTERN));
 	}
 	
+	// a whole command, as argument of another one
+	private Rule nested() {
+		return new Rule(REGEX_NESTED_PATTERN);
+	}
+	
 	private Rule start() {
 		return new Rule(REGEX_START_PATTERN);
 	}
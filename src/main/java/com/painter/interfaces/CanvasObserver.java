@@ -0,0 +1,17 @@
+package com.painter.interfaces;
+
+/**
+ * Canvas observer interface
+ * Notified after every change of the drawable area, in store coordinates
+ */
+public interface CanvasObserver {
+	/**
+	 * The area [x1,x2]x[y1,y2] has been written with the symbol
+	 */
+	void onAreaWritten(int x1, int y1, int x2, int y2, char symbol);
+
+	/**
+	 * The whole area has been resized or cleaned
+	 */
+	void onReset(int width, int height);
+}
@@ -1,6 +1,7 @@
 package com.painter.interfaces;
 
 import com.painter.exceptions.factories.CanvasNotSupportedException;
+import com.painter.exceptions.factories.CommandNotSupportedException;
 
 /**
  * Command functional interface
@@ -10,5 +11,5 @@ public interface Command{
 	/**
 	 * Execute the command on generic canvas
 	 */
-	public void execute(Canvas canvas, String[] commandParts) throws CanvasNotSupportedException;
+	public void execute(Canvas canvas, String[] commandParts) throws CanvasNotSupportedException, CommandNotSupportedException;
 }
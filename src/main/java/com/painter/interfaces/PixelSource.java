@@ -0,0 +1,44 @@
+package com.painter.interfaces;
+
+import java.util.Arrays;
+
+/**
+ * Read-only pixel source interface
+ *
+ * What a renderer needs to print an area: its size and its symbols.
+ * Coordinates are zero-based: 0 <= x < width, 0 <= y < height.
+ */
+public interface PixelSource {
+
+	int getWidth();
+
+	int getHeight();
+
+	/**
+	 * Get the symbol in the position (x,y)
+	 */
+	char get(int x, int y);
+
+	/**
+	 * End of the run of equal symbols starting at (x,y)
+	 * @return the first position in (x,limit) holding another symbol, limit otherwise
+	 */
+	default int runEnd(int y, int x, int limit) {
+		final char symbol = get(x, y);
+		int end = x+1;
+		while (end < limit && get(end, y) == symbol) ++end;
+		return end;
+	}
+
+	/**
+	 * Copy the row y into dst[0..width-1]
+	 */
+	default void readRow(int y, char[] dst) {
+		final int w = getWidth();
+		for (int x = 0; x < w;) {
+			int end = runEnd(y, x, w);
+			Arrays.fill(dst, x, end, get(x, y));
+			x = end;
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package com.painter.interfaces;
+
+/**
+ * Pixel storage interface
+ *
+ * Holds only the drawable area of a canvas (borders are rendered by the canvas).
+ * Coordinates are zero-based: 0 <= x < width, 0 <= y < height.
+ * Bounds are checked by the canvas, never by the store.
+ */
+public interface PixelStore extends PixelSource {
+	/**
+	 * Check if the store is able to hold a w x h area
+	 */
+	boolean supports(int width, int height);
+
+	/**
+	 * Allocate a new w x h area filled with the blank symbol
+	 */
+	void resize(int width, int height, char blank);
+
+	/**
+	 * Fill the whole area with the blank symbol
+	 */
+	void clear(char blank);
+
+	/**
+	 * Short name of the storage layout
+	 */
+	String getRepresentation();
+
+	/**
+	 * Estimated bytes used by the pixels
+	 */
+	long getMemoryUsage();
+
+	/**
+	 * Called between two commands: the store can reorganize itself
+	 */
+	default void commit() {
+	}
+
+	/**
+	 * Set the symbol in the position (x,y)
+	 */
+	void set(int x, int y, char symbol);
+
+	/**
+	 * Fill the horizontal span [x1,x2] of the row y
+	 */
+	default void fillSpan(int y, int x1, int x2, char symbol) {
+		for (int x = x1; x <= x2; ++x) set(x, y, symbol);
+	}
+
+	/**
+	 * Fill the area [x1,x2]x[y1,y2]
+	 */
+	default void fillRect(int x1, int y1, int x2, int y2, char symbol) {
+		for (int y = y1; y <= y2; ++y) fillSpan(y, x1, x2, symbol);
+	}
+
+	/**
+	 * Size of the uniform block holding (x,y)
+	 * Blocks are aligned squares: the block of (x,y) starts at ((x>>shift)<<shift, (y>>shift)<<shift)
+	 * and is clipped by the area.
+	 * @return log2 of the block side, 0 when nothing is known beyond the single pixel
+	 */
+	default int uniformBlockShift(int x, int y) {
+		return 0;
+	}
+}
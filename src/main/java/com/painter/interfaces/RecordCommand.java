@@ -0,0 +1,16 @@
+package com.painter.interfaces;
+
+import com.painter.exceptions.factories.CanvasNotSupportedException;
+import com.painter.exceptions.factories.CommandNotSupportedException;
+import com.painter.parsers.CommandRecord;
+
+/**
+ * Command executed on a decoded command record
+ */
+@FunctionalInterface
+public interface RecordCommand{
+	/**
+	 * Execute the command on generic canvas
+	 */
+	public void execute(Canvas canvas, CommandRecord record) throws CanvasNotSupportedException, CommandNotSupportedException;
+}
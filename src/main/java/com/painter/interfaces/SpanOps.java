@@ -0,0 +1,21 @@
+package com.painter.interfaces;
+
+/**
+ * Primitive operations on spans of a char array
+ * Spans are [from,to), to excluded.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public interface SpanOps {
+
+	/**
+	 * Write the symbol in every cell of the span
+	 */
+	void fill(char[] cells, int from, int to, char symbol);
+
+	/**
+	 * @return first position of the span holding another symbol, to otherwise
+	 */
+	int mismatch(char[] cells, int from, int to, char symbol);
+}
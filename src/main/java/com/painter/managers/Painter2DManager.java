@@ -1,27 +1,41 @@
 package com.painter.managers;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Scanner;
 
 import com.painter.exceptions.factories.CanvasNotSupportedException;
 import com.painter.exceptions.factories.CommandNotSupportedException;
+import com.painter.exceptions.parsers.MalformedCommandException;
 import com.painter.factories.CanvasFactory;
 import com.painter.factories.CommandFactory;
+import com.painter.factories.RuleFactory;
 import com.painter.models.canvas.TwoDimCanvas;
-import com.painter.validators.CommandValidator;
+import com.painter.parsers.BinaryCommandReader;
+import com.painter.parsers.CommandLexer;
+import com.painter.parsers.CommandRecord;
 
 public class Painter2DManager {
 
 	/**
-	 * Validator
+	 * Validates and decodes the command lines in one pass
 	 */
-	private final CommandValidator commandValidator = new CommandValidator();
+	private final CommandLexer lexer = new CommandLexer(RuleFactory.init());
+	private final CommandRecord record = new CommandRecord();
+	private boolean incremental = false;
 	
 	public Painter2DManager() {
 	}
 	
+	/**
+	 * Print only the changes of every command, on an ANSI terminal
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+	
 	public void start() {
-		final String TOKEN_SPACE = " ";
 		final PrintStream out = System.out;
 		final String welcome = ResourceManager.getString("input.label");
 		@SuppressWarnings("resource")
@@ -34,13 +48,35 @@ public class Painter2DManager {
 				out.print(welcome);
 				try {
 					String input = scanner.nextLine();
-					if (commandValidator.isValid(input)) {
-						// splitting by spaces
-						cmdf.executeCommand(canvas, input.split(TOKEN_SPACE));
-						canvas.print(out);
+					if (lexer.lex(input, record)) {
+						cmdf.executeCommand(canvas, record);
+						if (incremental) canvas.printChanges(out);
+						else canvas.print(out);
 					}
 				} catch (NullPointerException | CommandNotSupportedException e) {}
 			}
 		} catch (CanvasNotSupportedException e) {}	
 	}
+	
+	/**
+	 * Replay a binary script and print the final canvas
+	 * Q ends the replay instead of the application.
+	 * @param in - Binary commands, see BinaryCommandReader
+	 * @param out - Final canvas
+	 * @throws IOException
+	 * @throws MalformedCommandException
+	 */
+	public void replay(ReadableByteChannel in, PrintStream out) throws IOException, MalformedCommandException {
+		final BinaryCommandReader reader = new BinaryCommandReader(in, lexer);
+		final CommandFactory cmdf = CommandFactory.init();
+		try {
+			TwoDimCanvas canvas = (TwoDimCanvas) CanvasFactory.init().getCanvas("2D");
+			while (reader.next(record) && record.getOpcode() != CommandFactory.cmdQ.charAt(0)) {
+				try {
+					cmdf.executeCommand(canvas, record);
+				} catch (CommandNotSupportedException e) {}
+			}
+			canvas.print(out);
+		} catch (CanvasNotSupportedException e) {}
+	}
 }
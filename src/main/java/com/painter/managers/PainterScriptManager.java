@@ -0,0 +1,176 @@
+package com.painter.managers;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.ReadableByteChannel;
+import java.util.stream.IntStream;
+
+import com.painter.exceptions.factories.CanvasNotSupportedException;
+import com.painter.exceptions.factories.CommandNotSupportedException;
+import com.painter.factories.CanvasFactory;
+import com.painter.factories.CommandFactory;
+import com.painter.factories.RuleFactory;
+import com.painter.models.canvas.TwoDimCanvas;
+import com.painter.parsers.ByteSequence;
+import com.painter.parsers.ChannelLineReader;
+import com.painter.parsers.CommandBatch;
+import com.painter.parsers.CommandLexer;
+import com.painter.parsers.CommandRecord;
+import com.painter.parsers.ScriptChunk;
+import com.painter.parsers.ScriptOptimizer;
+
+/**
+ * Batch mode: a whole script is run without prompts
+ * The script is read in blocks of lines, every block is decoded in parallel
+ * slices and then executed in order. The canvas is printed at the
+ * checkpoints (P) and at the end only; Q ends the script.
+ * Invalid lines, unsupported commands and commands rejected by the canvas
+ * are reported with their line number.
+ * An optimized script is read whole and its dead commands are dropped
+ * before running it.
+ * 
+ * @author Attilio Caravelli
+ *
+ */
+public class PainterScriptManager {
+
+	// smaller blocks are decoded by one thread
+	private static final int MIN_SLICE_LINES = 4096;
+	private static final char QUIT = CommandFactory.cmdQ.charAt(0);
+	private static final char CHECKPOINT = CommandFactory.cmdP.charAt(0);
+
+	private final Slice[] slices;
+	private final ScriptChunk chunk = new ScriptChunk();
+	private final CommandRecord record = new CommandRecord();
+	private final CommandFactory cmdf = CommandFactory.init();
+	private int slicesInUse = 0;
+	private boolean optimized = false;
+	private long errors = 0;
+	// the canvas was printed after the last command
+	private boolean printed = false;
+
+	public PainterScriptManager() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param parallelism - Maximum number of slices decoded at once
+	 */
+	public PainterScriptManager(int parallelism) {
+		if (parallelism <= 0) throw new IllegalArgumentException();
+		slices = new Slice[parallelism];
+		for (int i = 0; i < parallelism; ++i) slices[i] = new Slice();
+	}
+
+	/**
+	 * Optimized scripts are read whole and run without their dead commands
+	 * (see ScriptOptimizer): the output and the reported errors are the same
+	 */
+	public void setOptimized(boolean optimized) {
+		this.optimized = optimized;
+	}
+
+	/**
+	 * Run a text script
+	 * 
+	 * @param in - Script, one command per line
+	 * @param out - Canvas at the checkpoints and at the end
+	 * @param err - Errors, one per line
+	 * @return number of reported errors
+	 * @throws IOException
+	 */
+	public long run(ReadableByteChannel in, PrintStream out, PrintStream err) throws IOException {
+		final ChannelLineReader reader = new ChannelLineReader(in);
+		errors = 0;
+		printed = false;
+		try {
+			final TwoDimCanvas canvas = (TwoDimCanvas) CanvasFactory.init().getCanvas("2D");
+			if (optimized) {
+				final CommandBatch script = new CommandBatch();
+				while (reader.next(chunk)) {
+					decode(chunk);
+					for (int s = 0; s < slicesInUse; ++s) script.addAll(slices[s].batch);
+				}
+				final int eliminated = new ScriptOptimizer(canvas).optimize(script);
+				err.println(ResourceManager.getString("script.eliminated") + ": " + eliminated);
+				execute(script, 1, canvas, out, err);
+			} else {
+				script:
+				while (reader.next(chunk)) {
+					decode(chunk);
+					for (int s = 0; s < slicesInUse; ++s) if (!execute(slices[s].batch, chunk.getFirstLine() + slices[s].from, canvas, out, err)) break script;
+				}
+			}
+			if (!printed) canvas.print(out);
+		} catch (CanvasNotSupportedException e) {}
+		out.flush();
+		return errors;
+	}
+
+	/**
+	 * Run the commands of the batch in order
+	 * @return false when the script is over
+	 */
+	private boolean execute(CommandBatch batch, long firstLine, TwoDimCanvas canvas, PrintStream out, PrintStream err) throws CanvasNotSupportedException {
+		for (int i = 0; i < batch.size(); ++i) {
+			if (batch.isBlank(i)) continue;
+			if (!batch.isValid(i)) {
+				errors += report(err, firstLine + i, "script.invalid", null);
+				continue;
+			}
+			batch.load(i, record);
+			if (record.getOpcode() == QUIT) return false;
+			try {
+				cmdf.executeCommand(canvas, record);
+				if (cmdf.getRejection() != null) errors += report(err, firstLine + i, "script.rejected", cmdf.getRejection());
+			} catch (CommandNotSupportedException e) {
+				errors += report(err, firstLine + i, "script.unsupported", null);
+			}
+			printed = record.getOpcode() == CHECKPOINT;
+			if (printed) canvas.print(out);
+		}
+		return true;
+	}
+
+	// Decode the lines of the chunk, in parallel for large chunks
+	private void decode(ScriptChunk chunk) {
+		final long lines = chunk.getLineCount();
+		slicesInUse = (int) Math.max(1, Math.min(slices.length, lines / MIN_SLICE_LINES));
+		if (slicesInUse == 1) slices[0].decode(chunk, 0, (int) lines);
+		else IntStream.range(0, slicesInUse).parallel().forEach((s) -> slices[s].decode(chunk, (int) (lines * s / slicesInUse), (int) (lines * (s + 1) / slicesInUse)));
+	}
+
+	private static int report(PrintStream err, long line, String message, Exception cause) {
+		err.println(ResourceManager.getString("script.line") + " " + line + ": " + ResourceManager.getString(message)
+				+ (cause == null ? "" : " (" + cause.getClass().getSimpleName() + ")"));
+		return 1;
+	}
+
+	/**
+	 * Lines decoded by one thread, with its own lexer
+	 */
+	private static class Slice {
+
+		private final CommandLexer lexer = new CommandLexer(RuleFactory.init());
+		private final CommandRecord record = new CommandRecord();
+		private final ByteSequence line = new ByteSequence();
+		private final CommandBatch batch = new CommandBatch();
+		private int from = 0;
+
+		private void decode(ScriptChunk chunk, int from, int to) {
+			this.from = from;
+			batch.clear();
+			for (int i = from; i < to; ++i) {
+				chunk.line(i, line);
+				if (isBlank(line)) batch.addBlank();
+				else if (lexer.lex(line, record)) batch.add(record);
+				else batch.addInvalid();
+			}
+		}
+
+		private static boolean isBlank(CharSequence line) {
+			for (int i = 0; i < line.length(); ++i) if (!Character.isWhitespace(line.charAt(i))) return false;
+			return true;
+		}
+	}
+}
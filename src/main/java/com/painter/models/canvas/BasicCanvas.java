@@ -1,11 +1,22 @@
 package com.painter.models.canvas;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 
 import com.painter.exceptions.canvas.base.CanvasDimensionNotSupportedException;
 import com.painter.exceptions.canvas.base.CanvasNotEmptyElementException;
 import com.painter.exceptions.canvas.base.CanvasOutOfBordersException;
 import com.painter.interfaces.Canvas;
+import com.painter.interfaces.CanvasObserver;
+import com.painter.interfaces.PixelStore;
+import com.painter.models.canvas.index.DirtyRegionTracker;
+import com.painter.models.canvas.index.MipmapPyramid;
+import com.painter.models.canvas.render.AnsiRenderer;
+import com.painter.models.canvas.render.StreamRenderer;
+import com.painter.models.canvas.stores.FlatPixelStore;
+import com.painter.models.canvas.stores.ObservablePixelStore;
 import com.painter.utilities.NullCheckUtilities;
 
 /**
@@ -21,9 +32,10 @@ import com.painter.utilities.NullCheckUtilities;
 public class BasicCanvas implements Canvas{
 	
 	//Can be extended by using a properties file for own configuration
-	private final Character VERTICAL_BORDER_SYMBOL = '|';
-	private final Character HORIZONTAL_BORDER_SYMBOL = '-';
-	private final Character EMPTY_CANVAS_ELEMENT_SYMBOL = ' ';
+	private final char VERTICAL_BORDER_SYMBOL = '|';
+	private final char HORIZONTAL_BORDER_SYMBOL = '-';
+	private final char EMPTY_CANVAS_ELEMENT_SYMBOL = ' ';
+	private final char MIXED_PREVIEW_SYMBOL = '#';
 		
 	private final Integer HORIZONTAL_BORDER = 1;
 	private final Integer VERTICAL_BORDER = 1;
@@ -31,22 +43,46 @@ public class BasicCanvas implements Canvas{
 	private final Integer DEFAULT_DIM = 1;
 	private final Integer MIN_CANVAS_DIM = 0;
 	private final Integer MAX_CANVAS_DIM = Integer.MAX_VALUE-HORIZONTAL_BORDER;
+	private final Integer NO_PREVIEW_LEVEL = 0;
 
-	private Character[][] canvas = null;
+	// Drawable area only: borders are rendered on the fly
+	private final ObservablePixelStore store;
+	private final StreamRenderer renderer = new StreamRenderer(VERTICAL_BORDER_SYMBOL, HORIZONTAL_BORDER_SYMBOL, EMPTY_CANVAS_ELEMENT_SYMBOL);
+	// printed window, in store coordinates (no window when its width is 0)
+	private int viewX = 0;
+	private int viewY = 0;
+	private int viewWidth = 0;
+	private int viewHeight = 0;
+	// incremental printing, from its first use
+	private DirtyRegionTracker dirty = null;
+	private AnsiRenderer ansiRenderer = null;
+	
+	private int previewLevel = 0;
+	private MipmapPyramid pyramid = null;
 	
 	/**
 	 * default canvas 1x1
 	 */
 	public BasicCanvas() {
-		canvas = new Character[2*VERTICAL_BORDER+DEFAULT_DIM][2*HORIZONTAL_BORDER+DEFAULT_DIM];
-		canvasInit(HORIZONTAL_BORDER_SYMBOL,VERTICAL_BORDER_SYMBOL,EMPTY_CANVAS_ELEMENT_SYMBOL);
+		this(new FlatPixelStore());
+	}
+	
+	/**
+	 * default canvas 1x1 on a specific pixel store
+	 * @param store - Storage of the drawable area
+	 * @throws NullPointerException
+	 */
+	public BasicCanvas(PixelStore store) throws NullPointerException {
+		if (NullCheckUtilities.isNull(store)) throw new NullPointerException();
+		this.store = new ObservablePixelStore(store);
+		this.store.resize(DEFAULT_DIM, DEFAULT_DIM, EMPTY_CANVAS_ELEMENT_SYMBOL);
 	}
 	
 	/**
 	 * Clean the canvas
 	 */
 	public void clean() {
-		canvasInit(HORIZONTAL_BORDER_SYMBOL,VERTICAL_BORDER_SYMBOL,EMPTY_CANVAS_ELEMENT_SYMBOL);
+		store.clear(EMPTY_CANVAS_ELEMENT_SYMBOL);
 	}
 	
 	/**
@@ -58,9 +94,17 @@ public class BasicCanvas implements Canvas{
 	 */
 	public void setNewDimensions(Integer w, Integer h) throws CanvasDimensionNotSupportedException, NullPointerException{
 		if (NullCheckUtilities.isNull(w, h)) throw new NullPointerException();
-		if (!isSupportedDim(w) || !isSupportedDim(h)) throw new CanvasDimensionNotSupportedException();
-		canvas = new Character[h+2*VERTICAL_BORDER][w+2*HORIZONTAL_BORDER];
-		canvasInit(HORIZONTAL_BORDER_SYMBOL,VERTICAL_BORDER_SYMBOL,EMPTY_CANVAS_ELEMENT_SYMBOL);
+		if (!supportsDimensions(w, h)) throw new CanvasDimensionNotSupportedException();
+		store.resize(w, h, EMPTY_CANVAS_ELEMENT_SYMBOL);
+	}
+	
+	/**
+	 * @return true if the canvas can be resized to w x h
+	 * @throws NullPointerException
+	 */
+	public boolean supportsDimensions(Integer w, Integer h) throws NullPointerException {
+		if (NullCheckUtilities.isNull(w, h)) throw new NullPointerException();
+		return isSupportedDim(w) && isSupportedDim(h) && store.supports(w, h);
 	}
 	
 	/**
@@ -75,7 +119,7 @@ public class BasicCanvas implements Canvas{
 	public void setElementAt(Integer x, Integer y, Character symbol) throws CanvasOutOfBordersException, NullPointerException, CanvasNotEmptyElementException{
 		if (NullCheckUtilities.isNull(x, y, symbol)) throw new NullPointerException();
 		if (!withinBorders(x,y)) throw new CanvasOutOfBordersException(); 
-	    if (hasEqualSymbolPoint(x, y, symbol) || isEmptyPoint(x, y)) canvas[y][x] = symbol;
+	    if (isPaintablePoint(x, y, symbol)) store.set(x-HORIZONTAL_BORDER, y-VERTICAL_BORDER, symbol);
 	    else throw new CanvasNotEmptyElementException();
 	}
 	
@@ -90,29 +134,194 @@ public class BasicCanvas implements Canvas{
 	public Character getElementAt(Integer x, Integer y)throws CanvasOutOfBordersException, NullPointerException{
 		if (NullCheckUtilities.isNull(x, y)) throw new NullPointerException();
 		if (!withinBorders(x,y)) throw new CanvasOutOfBordersException();
-		return canvas[y][x];
+		return store.get(x-HORIZONTAL_BORDER, y-VERTICAL_BORDER);
+	}
+	
+	/**
+	 * Print only a window of the canvas from now on
+	 * The window keeps its position and size when the canvas changes
+	 * and is clipped to the canvas when printed.
+	 * @param x - Coordinate x of the upper left corner
+	 * @param y - Coordinate y of the upper left corner
+	 * @param w - Width
+	 * @param h - Height
+	 * @throws CanvasOutOfBordersException
+	 * @throws CanvasDimensionNotSupportedException
+	 * @throws NullPointerException
+	 */
+	public void setViewport(Integer x, Integer y, Integer w, Integer h) throws CanvasOutOfBordersException, CanvasDimensionNotSupportedException, NullPointerException {
+		if (NullCheckUtilities.isNull(x, y, w, h)) throw new NullPointerException();
+		if (!withinBorders(x, y)) throw new CanvasOutOfBordersException();
+		if (w <= MIN_CANVAS_DIM || h <= MIN_CANVAS_DIM) throw new CanvasDimensionNotSupportedException();
+		viewX = x-HORIZONTAL_BORDER;
+		viewY = y-VERTICAL_BORDER;
+		viewWidth = w;
+		viewHeight = h;
+		if (dirty != null) dirty.onReset(getWidth(), getHeight());
+	}
+	
+	/**
+	 * Print the whole canvas again
+	 */
+	public void clearViewport() {
+		viewWidth = 0;
+		viewHeight = 0;
+		if (dirty != null) dirty.onReset(getWidth(), getHeight());
 	}
 	
+	/**
+	 * Print a downsampled preview from now on
+	 * Every printed cell summarizes a block of 2^level x 2^level pixels:
+	 * its main symbol, or '#' when there is none.
+	 * The preview is kept up to date with the changes and ignores the viewport.
+	 * @param level - From 1 to 3, 0 to print the canvas again
+	 * @throws CanvasDimensionNotSupportedException
+	 * @throws NullPointerException
+	 */
+	public void setPreviewLevel(Integer level) throws CanvasDimensionNotSupportedException, NullPointerException {
+		if (NullCheckUtilities.isNull(level)) throw new NullPointerException();
+		if (level < NO_PREVIEW_LEVEL || level > MipmapPyramid.MAX_LEVEL) throw new CanvasDimensionNotSupportedException();
+		if (level.equals(NO_PREVIEW_LEVEL)) {
+			if (pyramid != null) store.removeObserver(pyramid);
+			pyramid = null;
+		} else if (pyramid == null) {
+			final MipmapPyramid created = new MipmapPyramid(store, EMPTY_CANVAS_ELEMENT_SYMBOL, MIXED_PREVIEW_SYMBOL);
+			if (!created.isSupported()) throw new CanvasDimensionNotSupportedException();
+			pyramid = created;
+			store.addObserver(pyramid);
+		}
+		previewLevel = level;
+		if (dirty != null) dirty.onReset(getWidth(), getHeight());
+	}
+	
+	/**
+	 * Observe every change of the drawable area
+	 * @param observer - Notified in zero-based store coordinates
+	 */
+	public void addObserver(CanvasObserver observer) {
+		if (NullCheckUtilities.isNull(observer)) throw new NullPointerException();
+		store.addObserver(observer);
+	}
+	
+	public void removeObserver(CanvasObserver observer) {
+		store.removeObserver(observer);
+	}
+	
+	/**
+	 * End of a command: the storage can reorganize itself
+	 */
+	public void commit() {
+		store.commit();
+	}
+	
+	/**
+	 * @return the storage layout in use
+	 */
+	public String getRepresentation() {
+		return store.getRepresentation();
+	}
+	
+	/**
+	 * @return estimated bytes used by the pixels
+	 */
+	public long getMemoryUsage() {
+		return store.getMemoryUsage();
+	}
+	
+	/**
+	 * Print the canvas row by row, without building the whole picture
+	 */
 	@Override
 	public void print(PrintStream out) {
 		if (NullCheckUtilities.isNull(out)) throw new NullPointerException();
-		out.print(this.toString());
+		try {
+			render(Channels.newChannel(out));
+		} catch (IOException e) {
+			// a PrintStream never throws, it keeps the error
+		}
+		out.flush();
+	}
+	
+	/**
+	 * Stream the canvas as UTF-8 bytes, a few rows of memory at most
+	 * @throws IOException
+	 */
+	public void render(WritableByteChannel out) throws IOException {
+		if (NullCheckUtilities.isNull(out)) throw new NullPointerException();
+		if (isPreview()) renderer.render(pyramid.getLevel(previewLevel), out);
+		else if (viewWidth == 0) renderer.render(store, out);
+		else renderer.render(store, getViewX(), getViewY(), getViewWidth(), getViewHeight(), out);
+	}
+	
+	/**
+	 * Print on an ANSI terminal what changed since the last call
+	 * The first call, a new size, a clean or large changes repaint the whole canvas.
+	 */
+	public void printChanges(PrintStream out) {
+		if (NullCheckUtilities.isNull(out)) throw new NullPointerException();
+		if (dirty == null) {
+			dirty = new DirtyRegionTracker();
+			dirty.onReset(getWidth(), getHeight());
+			store.addObserver(dirty);
+			ansiRenderer = new AnsiRenderer(VERTICAL_BORDER_SYMBOL, HORIZONTAL_BORDER_SYMBOL, EMPTY_CANVAS_ELEMENT_SYMBOL);
+		}
+		try {
+			if (isPreview()) {
+				// the tracked changes are pixels: the small preview is painted again
+				dirty.onReset(getWidth(), getHeight());
+				ansiRenderer.render(pyramid.getLevel(previewLevel), dirty, Channels.newChannel(out));
+			} else if (viewWidth == 0) ansiRenderer.render(store, dirty, Channels.newChannel(out));
+			else ansiRenderer.render(store, getViewX(), getViewY(), getViewWidth(), getViewHeight(), dirty, Channels.newChannel(out));
+		} catch (IOException e) {
+			// a PrintStream never throws, it keeps the error
+		}
+		out.flush();
 	}
 	
 	@Override
 	public String toString() {
-		StringBuilder sbResult = new StringBuilder();
-		for (int i = 0; i < canvas.length; ++i) {
-			for (int j = 0; j < canvas[0].length; ++j) {
-				sbResult.append(canvas[i][j]);
-			}
+		final int w = getWidth();
+		final int h = getHeight();
+		StringBuilder sbResult = new StringBuilder((int) Math.min(Integer.MAX_VALUE-8, (long) (w+2*HORIZONTAL_BORDER+1)*(h+2*VERTICAL_BORDER)));
+		char[] row = new char[w];
+		appendHorizontalBorder(sbResult, w);
+		for (int i = 0; i < h; ++i) {
+			store.readRow(i, row);
+			sbResult.append(VERTICAL_BORDER_SYMBOL).append(row).append(VERTICAL_BORDER_SYMBOL);
 	        sbResult.append("\n");
 	    }
+		appendHorizontalBorder(sbResult, w);
 		return sbResult.toString();
 	}
 	
+	/**
+	 * Storage of the drawable area, in zero-based coordinates
+	 */
+	protected PixelStore getStore() {
+		return store;
+	}
+	
+	protected char getEmptySymbol() {
+		return EMPTY_CANVAS_ELEMENT_SYMBOL;
+	}
+	
+	protected int toStoreX(Integer x) {
+		return x-HORIZONTAL_BORDER;
+	}
+	
+	protected int toStoreY(Integer y) {
+		return y-VERTICAL_BORDER;
+	}
+	
 	protected boolean isEmptyPoint(Integer x, Integer y) {
-		return canvas[y][x] == EMPTY_CANVAS_ELEMENT_SYMBOL;
+		return store.get(x-HORIZONTAL_BORDER, y-VERTICAL_BORDER) == EMPTY_CANVAS_ELEMENT_SYMBOL;
+	}
+	
+	/**
+	 * A point can be painted when it is empty or already has the symbol
+	 */
+	protected boolean isPaintablePoint(Integer x, Integer y, Character symbol) {
+		return hasEqualSymbolPoint(x, y, symbol) || isEmptyPoint(x, y);
 	}
 	
 	protected boolean withinBorders(Integer x, Integer y) {
@@ -120,12 +329,40 @@ public class BasicCanvas implements Canvas{
 		return true;
 	}
 	
-	private Integer getHeight(){
-		return canvas.length-2*VERTICAL_BORDER;
+	/**
+	 * @return height of the drawable area
+	 */
+	public Integer getHeight(){
+		return store.getHeight();
 	}
 	
-	private Integer getWidth(){
-		return canvas[MIN_CANVAS_DIM].length-2*HORIZONTAL_BORDER;
+	/**
+	 * @return width of the drawable area
+	 */
+	public Integer getWidth(){
+		return store.getWidth();
+	}
+	
+	// a preview is printed while its levels fit in memory
+	private boolean isPreview() {
+		return previewLevel > NO_PREVIEW_LEVEL && pyramid.isSupported();
+	}
+	
+	// Window clipped to the canvas
+	private int getViewX() {
+		return Math.min(viewX, getWidth()-1);
+	}
+	
+	private int getViewY() {
+		return Math.min(viewY, getHeight()-1);
+	}
+	
+	private int getViewWidth() {
+		return Math.min(viewWidth, getWidth()-getViewX());
+	}
+	
+	private int getViewHeight() {
+		return Math.min(viewHeight, getHeight()-getViewY());
 	}
 	
 	private Integer getLeftBorder() {
@@ -145,27 +382,7 @@ public class BasicCanvas implements Canvas{
 	}
 
 	private boolean hasEqualSymbolPoint(Integer x, Integer y, Character symbol) {
-		return canvas[y][x] == symbol;
-	}
-	
-	private boolean onLeftBorder(Integer x) {
-		if (x == getLeftBorder()) return true;
-		return false;
-	}
-	
-	private boolean onRightBorder(Integer x) {
-		if (x == getRightBorder()) return true;
-		return false;
-	}
-	
-	private boolean onUpBorder(Integer y) {
-		if (y == getUpBorder()) return true;
-		return false;
-	}
-	
-	private boolean onDownBorder(Integer y) {
-		if (y == getDownBorder()) return true;
-		return false;
+		return store.get(x-HORIZONTAL_BORDER, y-VERTICAL_BORDER) == symbol;
 	}
 	
 	private boolean isSupportedDim(Integer dim){
@@ -183,13 +400,8 @@ public class BasicCanvas implements Canvas{
 		return true;
 	}
 	
-	private void canvasInit(Character hBorderSymbol, Character vBorderSymbol, Character emptyElementSymbol) {
-		for (int i=0; i < canvas.length; ++i) {
-			for (int j=0; j < canvas[0].length; ++j) {
-				if (onUpBorder(i) || onDownBorder(i)) canvas[i][j] = hBorderSymbol;
-				else if (onLeftBorder(j)|| onRightBorder(j)) canvas[i][j] = vBorderSymbol;
-				else canvas[i][j] = emptyElementSymbol;
-			}
-		}
+	private void appendHorizontalBorder(StringBuilder sb, int w) {
+		for (int j = 0; j < w+2*HORIZONTAL_BORDER; ++j) sb.append(HORIZONTAL_BORDER_SYMBOL);
+		sb.append("\n");
 	}
 }
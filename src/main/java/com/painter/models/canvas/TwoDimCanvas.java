@@ -1,10 +1,20 @@
 package com.painter.models.canvas;
 
-import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
 
 import com.painter.exceptions.canvas.base.CanvasNotEmptyElementException;
 import com.painter.exceptions.canvas.base.CanvasOutOfBordersException;
 import com.painter.exceptions.canvas.twodims.CanvasObliqueLineNotSupportedException;
+import com.painter.exceptions.canvas.twodims.CanvasSpriteNotFoundException;
+import com.painter.interfaces.PixelStore;
+import com.painter.models.canvas.fill.ParallelFloodFill;
+import com.painter.models.canvas.fill.ScanlineFloodFill;
+import com.painter.models.canvas.index.ComponentIndex;
+import com.painter.models.canvas.index.OccupancyIndex;
+import com.painter.models.canvas.raster.SpanRasterizer;
+import com.painter.models.canvas.raster.Sprite;
+import com.painter.models.canvas.raster.SpriteCache;
+import com.painter.utilities.IntList;
 import com.painter.utilities.NullCheckUtilities;
 
 /**
@@ -16,6 +26,19 @@ import com.painter.utilities.NullCheckUtilities;
  */
 public class TwoDimCanvas extends BasicCanvas{
 
+	private static final int SPRITE_CACHE_CAPACITY = 16;
+
+	private final SpanRasterizer rasterizer = new SpanRasterizer();
+	private final SpriteCache sprites = new SpriteCache(SPRITE_CACHE_CAPACITY);
+	private final ScanlineFloodFill scanlineFill = new ScanlineFloodFill();
+	private final ParallelFloodFill parallelFill = new ParallelFloodFill(ForkJoinPool.commonPool());
+	// parallel bucket tool disabled by default
+	private long parallelFillThreshold = Long.MAX_VALUE;
+	// optional index of the blank regions
+	private ComponentIndex componentIndex = null;
+	// optional occupancy bitmap of the painted pixels
+	private OccupancyIndex occupancyIndex = null;
+
 	/**
 	 * default canvas 1x1
 	 */
@@ -23,6 +46,14 @@ public class TwoDimCanvas extends BasicCanvas{
 		super();
 	}
 
+	/**
+	 * default canvas 1x1 on a specific pixel store
+	 * @param store - Storage of the drawable area
+	 */
+	public TwoDimCanvas(PixelStore store) {
+		super(store);
+	}
+
 	/**
 	 * Bucket tool
 	 * 
@@ -36,31 +67,54 @@ public class TwoDimCanvas extends BasicCanvas{
 	{
 		if (NullCheckUtilities.isNull(xStart, yStart, newColor)) throw new NullPointerException();
 		if (!withinBorders(xStart,yStart)) throw new CanvasOutOfBordersException(); 
-		Stack<Point> pointsToFill = new Stack<>();
-		if (isValidPoint(xStart,yStart,newColor)) pointsToFill.push(new Point(xStart,yStart));
-		while (!pointsToFill.isEmpty()) {
-			Point point = pointsToFill.pop();
-			Integer x = point.x;
-			Integer y = point.y;
-			try {
-				this.setElementAt(x, y, newColor);
-			} catch (NullPointerException | CanvasOutOfBordersException | CanvasNotEmptyElementException e) {
-				// just continue the iteration
-			}
+		if (!isValidPoint(xStart,yStart,newColor)) return;
+		final PixelStore store = getStore();
+		if (componentIndex != null && componentIndex.isSupported()) {
+			componentIndex.fill(toStoreX(xStart), toStoreY(yStart), newColor);
+		} else if ((long) store.getWidth() * store.getHeight() >= parallelFillThreshold && parallelFill.supports(store)) {
+			parallelFill.fill(store, toStoreX(xStart), toStoreY(yStart), newColor, getEmptySymbol());
+		} else scanlineFill.fill(store, toStoreX(xStart), toStoreY(yStart), newColor, getEmptySymbol());
+	}
 
-			if (isValidPoint(x+1,y,newColor)) pointsToFill.push(new Point(x+1,y));
-			if (isValidPoint(x-1,y,newColor)) pointsToFill.push(new Point(x-1,y));
-			if (isValidPoint(x,y+1,newColor)) pointsToFill.push(new Point(x,y+1));
-			if (isValidPoint(x,y-1,newColor)) pointsToFill.push(new Point(x,y-1));
-			if (isValidPoint(x+1,y-1,newColor)) pointsToFill.push(new Point(x+1,y-1));
-			if (isValidPoint(x+1,y+1,newColor)) pointsToFill.push(new Point(x+1,y+1));
-			if (isValidPoint(x-1,y-1,newColor)) pointsToFill.push(new Point(x-1,y-1));
-			if (isValidPoint(x-1,y+1,newColor)) pointsToFill.push(new Point(x-1,y+1));
-		}
+	/**
+	 * Size of the blank region holding (x,y), the canvas is not changed
+	 * 
+	 * @param x
+	 * @param y
+	 * @return number of pixels, 0 if the point is not empty
+	 * @throws NullPointerException
+	 * @throws CanvasOutOfBordersException
+	 */
+	public long getRegionSize(Integer x, Integer y) throws NullPointerException, CanvasOutOfBordersException {
+		if (NullCheckUtilities.isNull(x, y)) throw new NullPointerException();
+		if (!withinBorders(x,y)) throw new CanvasOutOfBordersException();
+		if (componentIndex != null && componentIndex.isSupported()) return componentIndex.regionSize(toStoreX(x), toStoreY(y));
+		// only this region is walked when the index is not maintained
+		return scanlineFill.regionSize(getStore(), toStoreX(x), toStoreY(y), getEmptySymbol());
+	}
+
+	/**
+	 * Maintain an index of the blank regions, updated by every stroke,
+	 * used by the bucket tool and by getRegionSize
+	 */
+	public void enableComponentIndex() {
+		if (componentIndex != null) return;
+		componentIndex = new ComponentIndex(getStore(), getEmptySymbol());
+		addObserver(componentIndex);
+	}
+
+	/**
+	 * Bucket tool runs in parallel on canvases with at least this number of pixels
+	 * 
+	 * @param cells - Minimum area, Long.MAX_VALUE to always fill sequentially
+	 */
+	public void setParallelFillThreshold(long cells) {
+		this.parallelFillThreshold = cells;
 	}
 
 	/**
 	 * Drawing an horizontal or vertical line between (x1,y1) and (x2,y2)
+	 * Nothing is painted if the line crosses the borders or a painted point
 	 * 
 	 * @param x1
 	 * @param y1
@@ -73,13 +127,15 @@ public class TwoDimCanvas extends BasicCanvas{
 	 * @throws CanvasObliqueLineNotSupportedException
 	 */
 	public void drawLine(Integer x1, Integer y1, Integer x2, Integer y2, Character newColor) throws NullPointerException, CanvasNotEmptyElementException, CanvasOutOfBordersException, CanvasObliqueLineNotSupportedException {
-		if (isHorizonalLine(y1,y2)) drawHorizontalLine(x1, x2, y1, newColor);
-		else if (isVerticallLine(x1,x2)) drawVerticalLine(x1, y1, y2, newColor);
-		else throw new CanvasObliqueLineNotSupportedException();
+		if (NullCheckUtilities.isNull(x1, y1, x2, y2, newColor)) throw new NullPointerException();
+		if (!isHorizonalLine(y1,y2) && !isVerticallLine(x1,x2)) throw new CanvasObliqueLineNotSupportedException();
+		checkSegment(x1, y1, x2, y2, newColor);
+		paintSegment(x1, y1, x2, y2, newColor);
 	}
 
 	/**
 	 * Drawing a rectangle between (x1,y1) and (x2,y2)
+	 * Nothing is painted if a side crosses the borders or a painted point
 	 * 
 	 * @param x1
 	 * @param y1
@@ -91,30 +147,218 @@ public class TwoDimCanvas extends BasicCanvas{
 	 * @throws CanvasOutOfBordersException
 	 */
 	public void drawRectangle(Integer x1, Integer y1, Integer x2, Integer y2, Character newColor ) throws NullPointerException, CanvasNotEmptyElementException, CanvasOutOfBordersException {
-		drawHorizontalLine(x1, x2, y1, newColor);
-		drawHorizontalLine(x1, x2, y2, newColor);
-		drawVerticalLine(x1, y1, y2, newColor);
-		drawVerticalLine(x2, y1, y2, newColor);
+		if (NullCheckUtilities.isNull(x1, y1, x2, y2, newColor)) throw new NullPointerException();
+		checkSegment(x1, y1, x2, y1, newColor);
+		checkSegment(x1, y2, x2, y2, newColor);
+		checkSegment(x1, y1, x1, y2, newColor);
+		checkSegment(x2, y1, x2, y2, newColor);
+		paintSegment(x1, y1, x2, y1, newColor);
+		paintSegment(x1, y2, x2, y2, newColor);
+		paintSegment(x1, y1, x1, y2, newColor);
+		paintSegment(x2, y1, x2, y2, newColor);
+	}
+
+	/**
+	 * Drawing a segment in any direction between (x1,y1) and (x2,y2)
+	 * Nothing is painted if the segment crosses the borders or a painted point
+	 * 
+	 * @param x1
+	 * @param y1
+	 * @param x2
+	 * @param y2
+	 * @param newColor
+	 * @throws NullPointerException
+	 * @throws CanvasNotEmptyElementException
+	 * @throws CanvasOutOfBordersException
+	 */
+	public void drawSegment(Integer x1, Integer y1, Integer x2, Integer y2, Character newColor) throws NullPointerException, CanvasNotEmptyElementException, CanvasOutOfBordersException {
+		if (NullCheckUtilities.isNull(x1, y1, x2, y2, newColor)) throw new NullPointerException();
+		checkBox(Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2));
+		drawSpans(rasterizer.line(x1, y1, x2, y2), newColor);
+	}
+
+	/**
+	 * Drawing a filled rectangle between (x1,y1) and (x2,y2)
+	 * Nothing is painted if the rectangle crosses the borders or a painted point
+	 * 
+	 * @param x1
+	 * @param y1
+	 * @param x2
+	 * @param y2
+	 * @param newColor
+	 * @throws NullPointerException
+	 * @throws CanvasNotEmptyElementException
+	 * @throws CanvasOutOfBordersException
+	 */
+	public void fillRectangle(Integer x1, Integer y1, Integer x2, Integer y2, Character newColor) throws NullPointerException, CanvasNotEmptyElementException, CanvasOutOfBordersException {
+		if (NullCheckUtilities.isNull(x1, y1, x2, y2, newColor)) throw new NullPointerException();
+		checkBox(Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2));
+		drawSpans(rasterizer.filledRectangle(x1, y1, x2, y2), newColor);
+	}
+
+	/**
+	 * Drawing the outline of the ellipse centered in (cx,cy), a circle when rx equals ry
+	 * Nothing is painted if the ellipse crosses the borders or a painted point
+	 * 
+	 * @param cx
+	 * @param cy
+	 * @param rx - Horizontal radius
+	 * @param ry - Vertical radius
+	 * @param newColor
+	 * @throws NullPointerException
+	 * @throws CanvasNotEmptyElementException
+	 * @throws CanvasOutOfBordersException
+	 */
+	public void drawEllipse(Integer cx, Integer cy, Integer rx, Integer ry, Character newColor) throws NullPointerException, CanvasNotEmptyElementException, CanvasOutOfBordersException {
+		if (NullCheckUtilities.isNull(cx, cy, rx, ry, newColor)) throw new NullPointerException();
+		if (rx < 0 || ry < 0) throw new CanvasOutOfBordersException();
+		checkBox((long) cx - rx, (long) cy - ry, (long) cx + rx, (long) cy + ry);
+		drawSpans(rasterizer.ellipse(cx, cy, rx, ry), newColor);
+	}
+
+	/**
+	 * Capture the area between (x1,y1) and (x2,y2) as a named sprite
+	 * Blank points of the sprite are transparent when it is stamped
+	 * 
+	 * @param x1
+	 * @param y1
+	 * @param x2
+	 * @param y2
+	 * @param name - Name of the sprite, a previous sprite with the same name is replaced
+	 * @throws NullPointerException
+	 * @throws CanvasOutOfBordersException
+	 */
+	public void captureSprite(Integer x1, Integer y1, Integer x2, Integer y2, String name) throws NullPointerException, CanvasOutOfBordersException {
+		if (NullCheckUtilities.isNull(x1, y1, x2, y2, name)) throw new NullPointerException();
+		sprites.put(name, capture(x1, y1, x2, y2));
 	}
 
-	private void drawVerticalLine(Integer x, Integer y1, Integer y2, Character newColor) throws CanvasNotEmptyElementException, NullPointerException, CanvasOutOfBordersException {
-		if (y1 <= y2) {
-			for (int j=y1; j <= y2; ++j) setElementAt(x, j, newColor);
+	/**
+	 * Stamp a named sprite with its upper left corner in (x,y)
+	 * The sprite is clipped by the borders, nothing is painted if it crosses a painted point
+	 * 
+	 * @param x
+	 * @param y
+	 * @param name - Name of the sprite
+	 * @throws NullPointerException
+	 * @throws CanvasNotEmptyElementException
+	 * @throws CanvasSpriteNotFoundException
+	 */
+	public void stampSprite(Integer x, Integer y, String name) throws NullPointerException, CanvasNotEmptyElementException, CanvasSpriteNotFoundException {
+		if (NullCheckUtilities.isNull(x, y, name)) throw new NullPointerException();
+		final Sprite sprite = sprites.get(name);
+		if (NullCheckUtilities.isNull(sprite)) throw new CanvasSpriteNotFoundException();
+		blit(sprite, x, y);
+	}
+
+	/**
+	 * Copy the area between (x1,y1) and (x2,y2) with its upper left corner in (x,y)
+	 * The copy is clipped by the borders, nothing is painted if it crosses a painted point
+	 * 
+	 * @param x1
+	 * @param y1
+	 * @param x2
+	 * @param y2
+	 * @param x
+	 * @param y
+	 * @throws NullPointerException
+	 * @throws CanvasOutOfBordersException
+	 * @throws CanvasNotEmptyElementException
+	 */
+	public void copyArea(Integer x1, Integer y1, Integer x2, Integer y2, Integer x, Integer y) throws NullPointerException, CanvasOutOfBordersException, CanvasNotEmptyElementException {
+		if (NullCheckUtilities.isNull(x1, y1, x2, y2, x, y)) throw new NullPointerException();
+		// the source is captured first, so overlapping areas are copied correctly
+		blit(capture(x1, y1, x2, y2), x, y);
+	}
+
+	/**
+	 * Keep an occupancy bitmap of the drawable area, updated by every stroke,
+	 * used to check lines and rectangles 64 pixels at a time
+	 */
+	public void enableOccupancyIndex() {
+		if (occupancyIndex != null) return;
+		occupancyIndex = new OccupancyIndex(getStore(), getEmptySymbol());
+		addObserver(occupancyIndex);
+	}
+
+	// Lines are all-or-nothing: the whole segment is checked before painting
+	private void checkSegment(int x1, int y1, int x2, int y2, char newColor) throws CanvasOutOfBordersException, CanvasNotEmptyElementException {
+		if (!withinBorders(x1,y1) || !withinBorders(x2,y2)) throw new CanvasOutOfBordersException();
+		checkPaintable(x1, y1, x2, y2, newColor);
+	}
+
+	// Check that a segment within the borders holds only empty points or the new color
+	private void checkPaintable(int x1, int y1, int x2, int y2, char newColor) throws CanvasNotEmptyElementException {
+		final PixelStore store = getStore();
+		final char empty = getEmptySymbol();
+		final int xStart = toStoreX(Math.min(x1, x2));
+		final int xEnd = toStoreX(Math.max(x1, x2));
+		final int yStart = toStoreY(Math.min(y1, y2));
+		final int yEnd = toStoreY(Math.max(y1, y2));
+		if (occupancyIndex != null && occupancyIndex.isSupported()) {
+			// only the painted pixels are compared with the new color
+			if (yStart == yEnd) {
+				for (int x = occupancyIndex.nextInRow(yStart, xStart, xEnd); x >= 0; x = occupancyIndex.nextInRow(yStart, x + 1, xEnd)) {
+					if (store.get(x, yStart) != newColor) throw new CanvasNotEmptyElementException();
+				}
+			} else {
+				for (int y = occupancyIndex.nextInColumn(xStart, yStart, yEnd); y >= 0; y = occupancyIndex.nextInColumn(xStart, y + 1, yEnd)) {
+					if (store.get(xStart, y) != newColor) throw new CanvasNotEmptyElementException();
+				}
+			}
+		} else if (yStart == yEnd) {
+			for (int x = xStart; x <= xEnd; x = store.runEnd(yStart, x, xEnd + 1)) {
+				final char symbol = store.get(x, yStart);
+				if (symbol != empty && symbol != newColor) throw new CanvasNotEmptyElementException();
+			}
 		} else {
-			for (int j=y1; j >= y2; --j) setElementAt(x, j, newColor);
+			for (int y = yStart; y <= yEnd; ++y) {
+				final char symbol = store.get(xStart, y);
+				if (symbol != empty && symbol != newColor) throw new CanvasNotEmptyElementException();
+			}
 		}
 	}
 
-	private void drawHorizontalLine(Integer x1, Integer x2, Integer y, Character newColor) throws CanvasNotEmptyElementException, NullPointerException, CanvasOutOfBordersException  {
-		// Forward direction
-		if (x1 <= x2) {
-			for (int i=x1; i <= x2; ++i) setElementAt(i, y, newColor);
-		} else {
-			//Backward direction
-			for (int i=x1; i >= x2; --i) setElementAt(i, y, newColor);
+	// Shapes are all-or-nothing: every span is checked before painting
+	// Reject a shape whose bounding box crosses the borders before rasterizing it
+	private void checkBox(long x1, long y1, long x2, long y2) throws CanvasOutOfBordersException {
+		if (x1 < Integer.MIN_VALUE || y1 < Integer.MIN_VALUE || x2 > Integer.MAX_VALUE || y2 > Integer.MAX_VALUE) throw new CanvasOutOfBordersException();
+		if (!withinBorders((int) x1, (int) y1) || !withinBorders((int) x2, (int) y2)) throw new CanvasOutOfBordersException();
+	}
+
+	private void drawSpans(IntList spans, char newColor) throws CanvasOutOfBordersException, CanvasNotEmptyElementException {
+		for (int i = 0; i < spans.size(); i += 3) checkSegment(spans.get(i + 1), spans.get(i), spans.get(i + 2), spans.get(i), newColor);
+		final PixelStore store = getStore();
+		for (int i = 0; i < spans.size(); i += 3) store.fillSpan(toStoreY(spans.get(i)), toStoreX(spans.get(i + 1)), toStoreX(spans.get(i + 2)), newColor);
+	}
+
+	private Sprite capture(int x1, int y1, int x2, int y2) throws CanvasOutOfBordersException {
+		if (!withinBorders(x1,y1) || !withinBorders(x2,y2)) throw new CanvasOutOfBordersException();
+		return Sprite.capture(getStore(), toStoreX(Math.min(x1, x2)), toStoreY(Math.min(y1, y2)),
+				toStoreX(Math.max(x1, x2)), toStoreY(Math.max(y1, y2)), getEmptySymbol());
+	}
+
+	// Runs are clipped by the borders, then checked all before being written
+	private void blit(Sprite sprite, int x, int y) throws CanvasNotEmptyElementException {
+		final PixelStore store = getStore();
+		for (int pass = 0; pass < 2; ++pass) {
+			for (int run = 0; run < sprite.getRunCount(); ++run) {
+				final long row = (long) y + sprite.getRunY(run);
+				final int start = (int) Math.max(1, (long) x + sprite.getRunStart(run));
+				final int end = (int) Math.min(store.getWidth(), (long) x + sprite.getRunEnd(run));
+				if (row < 1 || row > store.getHeight() || start > end) continue;
+				final char symbol = sprite.getRunSymbol(run);
+				if (pass == 1) store.fillSpan(toStoreY((int) row), toStoreX(start), toStoreX(end), symbol);
+				else checkPaintable(start, (int) row, end, (int) row, symbol);
+			}
 		}
 	}
 
+	// Commit a checked horizontal or vertical segment at once
+	private void paintSegment(int x1, int y1, int x2, int y2, char newColor) {
+		getStore().fillRect(toStoreX(Math.min(x1, x2)), toStoreY(Math.min(y1, y2)), toStoreX(Math.max(x1, x2)), toStoreY(Math.max(y1, y2)), newColor);
+	}
+
 	private boolean isHorizonalLine(Integer y1, Integer y2){
 		return (y1-y2) == 0;
 	}
@@ -126,13 +370,4 @@ public class TwoDimCanvas extends BasicCanvas{
 	private boolean isValidPoint(Integer x, Integer y, Character newColor) {
 		return super.withinBorders(x,y) && super.isEmptyPoint(x, y);
 	}
-
-	private class Point{
-		public Integer x;
-		public Integer y;
-		public Point(Integer xVal,Integer yVal){
-			this.x = xVal;
-			this.y = yVal;
-		}
-	}
 }
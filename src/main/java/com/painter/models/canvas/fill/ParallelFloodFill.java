@@ -0,0 +1,188 @@
+package com.painter.models.canvas.fill;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.painter.interfaces.PixelStore;
+
+/**
+ * Parallel flood fill with 8-connectivity
+ * The area is split in tiles labelled in parallel on a fork/join pool:
+ * 1. every tile links its blank pixels to the blank neighbours inside the tile
+ * 2. every tile links its top and left edges to the neighbouring tiles
+ * 3. every pixel is pointed straight to its root
+ * Links are kept in a lock-free union-find (the smaller index wins), then
+ * the spans of the component holding the seed are written sequentially,
+ * since stores are not thread-safe for writes.
+ * Needs 4 bytes per pixel, so it is meant for large canvases only.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class ParallelFloodFill {
+
+	private static final int NOT_BLANK = -1;
+	private static final int TILE_SIZE = 256;
+	private static final int MAX_AREA = Integer.MAX_VALUE - 8;
+
+	private final ForkJoinPool pool;
+
+	public ParallelFloodFill(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Check if the area can be labelled in memory
+	 */
+	public boolean supports(PixelStore store) {
+		return (long) store.getWidth() * store.getHeight() <= MAX_AREA;
+	}
+
+	/**
+	 * Fill the blank region connected to (x,y), store coordinates
+	 */
+	public void fill(PixelStore store, int x, int y, char newColor, char blank) {
+		if (newColor == blank || store.get(x, y) != blank) return;
+		final int w = store.getWidth();
+		final int h = store.getHeight();
+		final AtomicIntegerArray parent = new AtomicIntegerArray(w * h);
+		final int tilesX = (w + TILE_SIZE - 1) / TILE_SIZE;
+		final int tiles = tilesX * ((h + TILE_SIZE - 1) / TILE_SIZE);
+		pool.invoke(new TileTask(0, tiles, (tile) -> labelTile(store, parent, tile, tilesX, blank)));
+		pool.invoke(new TileTask(0, tiles, (tile) -> mergeTileEdges(parent, tile, tilesX, w, h)));
+		pool.invoke(new TileTask(0, tiles, (tile) -> flattenTile(parent, tile, tilesX, w, h)));
+		final int root = find(parent, y * w + x);
+		for (int j = 0; j < h; ++j) {
+			int i = 0;
+			while (i < w) {
+				if (parent.get(j * w + i) != root) {
+					++i;
+					continue;
+				}
+				int start = i;
+				while (i < w && parent.get(j * w + i) == root) ++i;
+				store.fillSpan(j, start, i - 1, newColor);
+			}
+		}
+	}
+
+	private void labelTile(PixelStore store, AtomicIntegerArray parent, int tile, int tilesX, char blank) {
+		final int w = store.getWidth();
+		final int x1 = (tile % tilesX) * TILE_SIZE;
+		final int y1 = (tile / tilesX) * TILE_SIZE;
+		final int x2 = Math.min(x1 + TILE_SIZE, w);
+		final int y2 = Math.min(y1 + TILE_SIZE, store.getHeight());
+		for (int y = y1; y < y2; ++y) {
+			for (int x = x1; x < x2; ++x) {
+				final int i = y * w + x;
+				if (store.get(x, y) != blank) {
+					parent.set(i, NOT_BLANK);
+					continue;
+				}
+				parent.set(i, i);
+				// already labelled neighbours of the same tile: W, NW, N, NE
+				if (x > x1) union(parent, i, i - 1);
+				if (y > y1) {
+					if (x > x1) union(parent, i, i - w - 1);
+					union(parent, i, i - w);
+					if (x + 1 < x2) union(parent, i, i - w + 1);
+				}
+			}
+		}
+	}
+
+	private void mergeTileEdges(AtomicIntegerArray parent, int tile, int tilesX, int w, int h) {
+		final int x1 = (tile % tilesX) * TILE_SIZE;
+		final int y1 = (tile / tilesX) * TILE_SIZE;
+		final int x2 = Math.min(x1 + TILE_SIZE, w);
+		final int y2 = Math.min(y1 + TILE_SIZE, h);
+		if (y1 > 0) {
+			// top edge: NW, N, NE
+			for (int x = x1; x < x2; ++x) {
+				for (int dx = -1; dx <= 1; ++dx) {
+					if (x + dx >= 0 && x + dx < w) union(parent, y1 * w + x, (y1 - 1) * w + x + dx);
+				}
+			}
+		}
+		if (x1 > 0) {
+			// left edge: W, NW, SW (NW of the first row belongs to the top edge)
+			for (int y = y1; y < y2; ++y) {
+				union(parent, y * w + x1, y * w + x1 - 1);
+				if (y > y1) union(parent, y * w + x1, (y - 1) * w + x1 - 1);
+				if (y + 1 < y2) union(parent, y * w + x1, (y + 1) * w + x1 - 1);
+			}
+		}
+	}
+
+	private void flattenTile(AtomicIntegerArray parent, int tile, int tilesX, int w, int h) {
+		final int x1 = (tile % tilesX) * TILE_SIZE;
+		final int y1 = (tile / tilesX) * TILE_SIZE;
+		final int x2 = Math.min(x1 + TILE_SIZE, w);
+		final int y2 = Math.min(y1 + TILE_SIZE, h);
+		for (int y = y1; y < y2; ++y) {
+			for (int x = x1; x < x2; ++x) {
+				final int i = y * w + x;
+				if (parent.get(i) != NOT_BLANK) parent.set(i, find(parent, i));
+			}
+		}
+	}
+
+	// Lock-free union: the root with the larger index is linked to the other one
+	private static void union(AtomicIntegerArray parent, int a, int b) {
+		if (parent.get(a) == NOT_BLANK || parent.get(b) == NOT_BLANK) return;
+		while (true) {
+			a = find(parent, a);
+			b = find(parent, b);
+			if (a == b) return;
+			if (a < b) {
+				int swap = a;
+				a = b;
+				b = swap;
+			}
+			if (parent.compareAndSet(a, a, b)) return;
+		}
+	}
+
+	// Find with path halving, safe under concurrent unions
+	private static int find(AtomicIntegerArray parent, int i) {
+		while (true) {
+			final int p = parent.get(i);
+			if (p == i) return i;
+			final int grandParent = parent.get(p);
+			if (grandParent != p) parent.compareAndSet(i, p, grandParent);
+			i = grandParent;
+		}
+	}
+
+	@FunctionalInterface
+	private interface TileAction {
+		void run(int tile);
+	}
+
+	private static class TileTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -3071465221397812493L;
+		private static final int TILES_PER_TASK = 4;
+
+		private final int from;
+		private final int to;
+		private final TileAction action;
+
+		TileTask(int from, int to, TileAction action) {
+			this.from = from;
+			this.to = to;
+			this.action = action;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= TILES_PER_TASK) {
+				for (int tile = from; tile < to; ++tile) action.run(tile);
+				return;
+			}
+			final int middle = (from + to) >>> 1;
+			invokeAll(new TileTask(from, middle, action), new TileTask(middle, to, action));
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.painter.models.canvas.fill;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.painter.interfaces.PixelStore;
+import com.painter.utilities.IntStack;
+
+/**
+ * Span (scanline) flood fill with 8-connectivity
+ * Every horizontal span of blank pixels is written at once, then the rows
+ * above and below are scanned from one pixel before to one pixel after
+ * the span (diagonal neighbours) pushing one seed per blank run.
+ * Uniform blank blocks reported by the store are filled as a whole.
+ * Seeds are kept as pairs of ints in a reusable primitive stack.
+ * The stack holds one seed per blank run found next to a filled span, so it
+ * grows with the runs of the region and not with its pixels; it is not
+ * bounded by w+h: a region of many short runs (a comb, a lattice) can keep
+ * a number of seeds proportional to its area.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class ScanlineFloodFill {
+
+	private final IntStack seeds = new IntStack();
+
+	/**
+	 * Fill the blank region connected to (x,y), store coordinates
+	 * @return number of spans and blocks written
+	 */
+	public long fill(PixelStore store, int x, int y, char newColor, char blank) {
+		long writes = 0;
+		if (newColor == blank || store.get(x, y) != blank) return writes;
+		seeds.clear();
+		push(x, y);
+		while (!seeds.isEmpty()) {
+			final int seedY = seeds.pop();
+			final int seedX = seeds.pop();
+			// already reached from another span
+			if (store.get(seedX, seedY) != blank) continue;
+			final int shift = store.uniformBlockShift(seedX, seedY);
+			if (shift > 0) fillBlock(store, seedX, seedY, shift, newColor, blank);
+			else fillSpan(store, seedX, seedY, newColor, blank);
+			++writes;
+		}
+		return writes;
+	}
+
+	/**
+	 * Size of the blank region connected to (x,y), store coordinates
+	 * The same walk as the fill, but the reached spans are recorded by row
+	 * instead of being painted: the store is not changed.
+	 * @return number of pixels, 0 if the pixel is not blank
+	 */
+	public long regionSize(PixelStore store, int x, int y, char blank) {
+		long size = 0;
+		if (store.get(x, y) != blank) return size;
+		// row -> reached spans, start -> end
+		final Map<Integer, TreeMap<Integer, Integer>> reached = new HashMap<>();
+		seeds.clear();
+		push(x, y);
+		while (!seeds.isEmpty()) {
+			final int seedY = seeds.pop();
+			final int seedX = seeds.pop();
+			final TreeMap<Integer, Integer> row = reached.computeIfAbsent(seedY, (key) -> new TreeMap<>());
+			final Map.Entry<Integer, Integer> span = row.floorEntry(seedX);
+			if (span != null && span.getValue() >= seedX) continue;
+			int left = seedX;
+			while (left > 0 && store.get(left - 1, seedY) == blank) --left;
+			final int right = store.runEnd(seedY, seedX, store.getWidth()) - 1;
+			row.put(left, right);
+			size += right - left + 1;
+			scanRow(store, seedY - 1, left - 1, right + 1, blank);
+			scanRow(store, seedY + 1, left - 1, right + 1, blank);
+		}
+		return size;
+	}
+
+	private void fillSpan(PixelStore store, int x, int y, char newColor, char blank) {
+		int left = x;
+		while (left > 0 && store.get(left - 1, y) == blank) --left;
+		final int right = store.runEnd(y, x, store.getWidth()) - 1;
+		store.fillSpan(y, left, right, newColor);
+		scanRow(store, y - 1, left - 1, right + 1, blank);
+		scanRow(store, y + 1, left - 1, right + 1, blank);
+	}
+
+	// A uniform blank block is connected: fill it at once and continue from its ring
+	private void fillBlock(PixelStore store, int x, int y, int shift, char newColor, char blank) {
+		final int x1 = (x >> shift) << shift;
+		final int y1 = (y >> shift) << shift;
+		final int x2 = (int) Math.min(x1 + (1L << shift) - 1, store.getWidth() - 1);
+		final int y2 = (int) Math.min(y1 + (1L << shift) - 1, store.getHeight() - 1);
+		store.fillRect(x1, y1, x2, y2, newColor);
+		scanRow(store, y1 - 1, x1 - 1, x2 + 1, blank);
+		scanRow(store, y2 + 1, x1 - 1, x2 + 1, blank);
+		for (int j = y1; j <= y2; ++j) {
+			scanRow(store, j, x1 - 1, x1 - 1, blank);
+			scanRow(store, j, x2 + 1, x2 + 1, blank);
+		}
+	}
+
+	// Push one seed for every blank run of the row crossing [x1,x2]
+	private void scanRow(PixelStore store, int y, int x1, int x2, char blank) {
+		if (y < 0 || y >= store.getHeight()) return;
+		final int limit = Math.min(x2, store.getWidth() - 1) + 1;
+		int x = Math.max(x1, 0);
+		while (x < limit) {
+			if (store.get(x, y) == blank) push(x, y);
+			x = store.runEnd(y, x, limit);
+		}
+	}
+
+	private void push(int x, int y) {
+		seeds.push(x);
+		seeds.push(y);
+	}
+}
@@ -0,0 +1,190 @@
+package com.painter.models.canvas.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.painter.interfaces.CanvasObserver;
+import com.painter.interfaces.PixelStore;
+import com.painter.utilities.IntList;
+import com.painter.utilities.IntStack;
+
+/**
+ * Connected-component index of the blank regions (8-connectivity)
+ * Keeps a label per pixel and, for every region, its size and spans.
+ * Blank pixels can only be painted (never erased) until the canvas is reset,
+ * so strokes can only split regions: a written pixel just leaves its region,
+ * which is marked dirty and split again on the next query touching it.
+ * The whole index is rebuilt lazily after a reset.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class ComponentIndex implements CanvasObserver {
+
+	private static final int NONE = 0;
+	private static final long MAX_AREA = Integer.MAX_VALUE - 8;
+
+	private final PixelStore store;
+	private final char blank;
+	private int[] labels = new int[0];
+	// region of every label, the label 0 (NONE) is reserved
+	private final List<Region> regions = new ArrayList<>();
+	private boolean valid = false;
+	private final IntStack seeds = new IntStack();
+
+	public ComponentIndex(PixelStore store, char blank) {
+		this.store = store;
+		this.blank = blank;
+	}
+
+	/**
+	 * Check if the labels of the current area fit in memory
+	 */
+	public boolean isSupported() {
+		return (long) store.getWidth() * store.getHeight() <= MAX_AREA;
+	}
+
+	/**
+	 * @return pixels of the blank region holding (x,y), 0 if the pixel is not blank
+	 */
+	public long regionSize(int x, int y) {
+		final int label = label(x, y);
+		return label == NONE ? 0 : regions.get(label).size;
+	}
+
+	/**
+	 * Paint the blank region holding (x,y) span by span
+	 */
+	public void fill(int x, int y, char newColor) {
+		if (newColor == blank) return;
+		final int label = label(x, y);
+		if (label == NONE) return;
+		final IntList spans = regions.get(label).spans;
+		// written pixels leave the region through onAreaWritten
+		for (int i = 0; i < spans.size(); i += 3) store.fillSpan(spans.get(i), spans.get(i + 1), spans.get(i + 2), newColor);
+	}
+
+	@Override
+	public void onAreaWritten(int x1, int y1, int x2, int y2, char symbol) {
+		if (!valid) return;
+		final int w = store.getWidth();
+		for (int y = y1; y <= y2; ++y) {
+			for (int x = x1; x <= x2; ++x) {
+				final int label = labels[y * w + x];
+				if (label == NONE) continue;
+				labels[y * w + x] = NONE;
+				Region region = regions.get(label);
+				region.dirty = true;
+				if (--region.size == 0) regions.set(label, null);
+			}
+		}
+	}
+
+	@Override
+	public void onReset(int width, int height) {
+		valid = false;
+	}
+
+	private int label(int x, int y) {
+		if (!valid) rebuild();
+		final int i = y * store.getWidth() + x;
+		final int label = labels[i];
+		if (label != NONE && regions.get(label).dirty) split(label);
+		return labels[i];
+	}
+
+	private void rebuild() {
+		final int w = store.getWidth();
+		final int h = store.getHeight();
+		if (labels.length == w * h) Arrays.fill(labels, NONE);
+		else labels = new int[w * h];
+		regions.clear();
+		regions.add(null);
+		for (int y = 0; y < h; ++y) {
+			for (int x = 0; x < w;) {
+				if (labels[y * w + x] == NONE && store.get(x, y) == blank) labelRegion(x, y, NONE, newRegion());
+				x = store.runEnd(y, x, w);
+			}
+		}
+		valid = true;
+	}
+
+	// The pixels still in the region are relabelled by connectivity
+	private void split(int label) {
+		final IntList spans = regions.get(label).spans;
+		final int w = store.getWidth();
+		final int pending = -label;
+		for (int i = 0; i < spans.size(); i += 3) {
+			int row = spans.get(i) * w;
+			for (int x = spans.get(i + 1); x <= spans.get(i + 2); ++x) {
+				if (labels[row + x] == label) labels[row + x] = pending;
+			}
+		}
+		regions.set(label, new Region());
+		// the first piece keeps the label
+		int next = label;
+		for (int i = 0; i < spans.size(); i += 3) {
+			int y = spans.get(i);
+			for (int x = spans.get(i + 1); x <= spans.get(i + 2); ++x) {
+				if (labels[y * w + x] != pending) continue;
+				labelRegion(x, y, pending, next == NONE ? newRegion() : next);
+				next = NONE;
+			}
+		}
+	}
+
+	// Scanline labelling of the pixels connected to (x,y) inside the domain
+	private void labelRegion(int x, int y, int domain, int label) {
+		final int w = store.getWidth();
+		final int h = store.getHeight();
+		final Region region = regions.get(label);
+		seeds.clear();
+		seeds.push(x);
+		seeds.push(y);
+		while (!seeds.isEmpty()) {
+			final int seedY = seeds.pop();
+			final int seedX = seeds.pop();
+			if (!inDomain(seedX, seedY, domain)) continue;
+			int left = seedX;
+			while (left > 0 && inDomain(left - 1, seedY, domain)) --left;
+			int right = seedX;
+			while (right + 1 < w && inDomain(right + 1, seedY, domain)) ++right;
+			Arrays.fill(labels, seedY * w + left, seedY * w + right + 1, label);
+			region.spans.add(seedY);
+			region.spans.add(left);
+			region.spans.add(right);
+			region.size += right - left + 1;
+			for (int row = seedY - 1; row <= seedY + 1; row += 2) {
+				if (row < 0 || row >= h) continue;
+				boolean inRun = false;
+				for (int i = Math.max(left - 1, 0); i <= Math.min(right + 1, w - 1); ++i) {
+					boolean inside = inDomain(i, row, domain);
+					if (inside && !inRun) {
+						seeds.push(i);
+						seeds.push(row);
+					}
+					inRun = inside;
+				}
+			}
+		}
+	}
+
+	private boolean inDomain(int x, int y, int domain) {
+		final int label = labels[y * store.getWidth() + x];
+		if (domain == NONE) return label == NONE && store.get(x, y) == blank;
+		return label == domain;
+	}
+
+	private int newRegion() {
+		regions.add(new Region());
+		return regions.size() - 1;
+	}
+
+	private static class Region {
+		long size = 0;
+		boolean dirty = false;
+		// triplets y, x1, x2
+		final IntList spans = new IntList();
+	}
+}
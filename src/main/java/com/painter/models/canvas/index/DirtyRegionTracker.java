@@ -0,0 +1,101 @@
+package com.painter.models.canvas.index;
+
+import java.util.Arrays;
+
+import com.painter.interfaces.CanvasObserver;
+import com.painter.utilities.IntList;
+
+/**
+ * Tracker of the areas written since the last clear
+ * Every row keeps the span covering its written pixels, so the changes
+ * are described by one span per dirty row. A reset (new size or clean)
+ * marks the whole area as changed.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class DirtyRegionTracker implements CanvasObserver {
+
+	private static final int CLEAN = -1;
+
+	// first and last written x of every row, CLEAN if the row is unchanged
+	private int[] first = new int[0];
+	private int[] last = new int[0];
+	private final IntList rows = new IntList();
+	private long area = 0;
+	private boolean reset = true;
+
+	@Override
+	public void onAreaWritten(int x1, int y1, int x2, int y2, char symbol) {
+		// everything is changed already
+		if (reset) return;
+		for (int y = y1; y <= y2; ++y) {
+			if (first[y] == CLEAN) {
+				first[y] = x1;
+				last[y] = x2;
+				rows.add(y);
+				area += x2 - x1 + 1;
+			} else {
+				area -= last[y] - first[y] + 1;
+				first[y] = Math.min(first[y], x1);
+				last[y] = Math.max(last[y], x2);
+				area += last[y] - first[y] + 1;
+			}
+		}
+	}
+
+	@Override
+	public void onReset(int width, int height) {
+		if (first.length < height) {
+			first = new int[height];
+			last = new int[height];
+			Arrays.fill(first, CLEAN);
+			rows.clear();
+		}
+		clear();
+		reset = true;
+	}
+
+	/**
+	 * @return true if the whole area changed
+	 */
+	public boolean isReset() {
+		return reset;
+	}
+
+	/**
+	 * @return number of pixels in the dirty spans
+	 */
+	public long getDirtyArea() {
+		return area;
+	}
+
+	public int getDirtyRowCount() {
+		return rows.size();
+	}
+
+	/**
+	 * @return y of the dirty row i, in order of first change
+	 */
+	public int getDirtyRow(int i) {
+		return rows.get(i);
+	}
+
+	public int getFirst(int y) {
+		return first[y];
+	}
+
+	public int getLast(int y) {
+		return last[y];
+	}
+
+	/**
+	 * Start tracking from the current state
+	 */
+	public void clear() {
+		for (int i = 0; i < rows.size(); ++i) first[rows.get(i)] = CLEAN;
+		rows.clear();
+		area = 0;
+		reset = false;
+	}
+}
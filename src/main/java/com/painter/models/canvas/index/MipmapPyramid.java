@@ -0,0 +1,231 @@
+package com.painter.models.canvas.index;
+
+import java.util.Arrays;
+
+import com.painter.interfaces.CanvasObserver;
+import com.painter.interfaces.PixelSource;
+import com.painter.interfaces.PixelStore;
+
+/**
+ * Pyramid of downsampled levels of the drawable area
+ * A cell of the level k summarizes a block of 2^k x 2^k pixels: it is the
+ * symbol of the majority of its four cells of the level k-1 (pixels for
+ * the level 1), or the mixed symbol when there is no majority.
+ * A written area updates only the cells covering it: the cells whose block
+ * is inside the area take its symbol, the cells on its edge are summarized
+ * again from their four cells below.
+ * Levels are kept in tiles of 64x64 cells, a uniform tile is a single
+ * symbol: a reset or a large area only drops tiles, and the cells are
+ * allocated where the level is not uniform. The pixels are scanned only
+ * when the pyramid is built.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class MipmapPyramid implements CanvasObserver {
+
+	public static final int MAX_LEVEL = 3;
+	private static final int TILE_SHIFT = 6;
+	private static final int TILE_MASK = (1 << TILE_SHIFT) - 1;
+	private static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+	private final PixelStore store;
+	private final char blank;
+	private final char mixed;
+	// every level: cells of its tiles (null when uniform) and symbol of its uniform tiles
+	private final char[][][] cells = new char[MAX_LEVEL + 1][][];
+	private final char[][] uniform = new char[MAX_LEVEL + 1][];
+	private final int[] widths = new int[MAX_LEVEL + 1];
+	private final int[] heights = new int[MAX_LEVEL + 1];
+	private final int[] tilesX = new int[MAX_LEVEL + 1];
+	private boolean valid = false;
+
+	public MipmapPyramid(PixelStore store, char blank, char mixed) {
+		this.store = store;
+		this.blank = blank;
+		this.mixed = mixed;
+	}
+
+	/**
+	 * Check if the tiles of the current area fit in memory
+	 */
+	public boolean isSupported() {
+		return tilesOf(store.getWidth(), 1) * tilesOf(store.getHeight(), 1) <= MAX_ARRAY_SIZE;
+	}
+
+	/**
+	 * @param level - From 1 (2x smaller) to MAX_LEVEL
+	 * @return the level, built if needed
+	 */
+	public PixelSource getLevel(int level) {
+		if (level < 1 || level > MAX_LEVEL) throw new IllegalArgumentException();
+		if (!valid) build();
+		return new Level(level);
+	}
+
+	@Override
+	public void onAreaWritten(int x1, int y1, int x2, int y2, char symbol) {
+		if (!valid) return;
+		for (int level = 1; level <= MAX_LEVEL; ++level) {
+			// cells touched by the area, and cells whose block is inside it
+			final int outerX1 = x1 >> level;
+			final int outerY1 = y1 >> level;
+			final int outerX2 = x2 >> level;
+			final int outerY2 = y2 >> level;
+			final int innerX1 = (int) ((x1 + (1L << level) - 1) >> level);
+			final int innerY1 = (int) ((y1 + (1L << level) - 1) >> level);
+			final int innerX2 = x2 == store.getWidth() - 1 ? outerX2 : (int) ((x2 + 1L) >> level) - 1;
+			final int innerY2 = y2 == store.getHeight() - 1 ? outerY2 : (int) ((y2 + 1L) >> level) - 1;
+			final boolean inner = innerX1 <= innerX2 && innerY1 <= innerY2;
+			if (inner) fill(level, innerX1, innerY1, innerX2, innerY2, symbol);
+			for (int cy = outerY1; cy <= outerY2; ++cy) {
+				final boolean crossesInner = inner && cy >= innerY1 && cy <= innerY2;
+				for (int cx = outerX1; cx <= outerX2; ++cx) {
+					if (crossesInner && cx == innerX1) cx = innerX2;
+					else set(level, cx, cy, summarize(level, cx, cy));
+				}
+			}
+		}
+	}
+
+	@Override
+	public void onReset(int width, int height) {
+		valid = false;
+		if (!isSupported()) return;
+		for (int level = 1; level <= MAX_LEVEL; ++level) reset(level, width, height);
+		valid = true;
+	}
+
+	// Scan the pixels once, every level from the one below
+	private void build() {
+		if (!isSupported()) throw new IllegalStateException();
+		for (int level = 1; level <= MAX_LEVEL; ++level) {
+			reset(level, store.getWidth(), store.getHeight());
+			for (int cy = 0; cy < heights[level]; ++cy) {
+				for (int cx = 0; cx < widths[level]; ++cx) set(level, cx, cy, summarize(level, cx, cy));
+			}
+		}
+		valid = true;
+	}
+
+	// A blank level: every tile uniform, buffers reused
+	private void reset(int level, int width, int height) {
+		widths[level] = (int) cellsOf(width, level);
+		heights[level] = (int) cellsOf(height, level);
+		tilesX[level] = (int) tilesOf(width, level);
+		final int tiles = tilesX[level] * (int) tilesOf(height, level);
+		if (cells[level] == null || cells[level].length < tiles) {
+			cells[level] = new char[tiles][];
+			uniform[level] = new char[tiles];
+		} else Arrays.fill(cells[level], 0, tiles, null);
+		Arrays.fill(uniform[level], 0, tiles, blank);
+	}
+
+	// Majority of the four cells below, mixed without one
+	private char summarize(int level, int cx, int cy) {
+		final int below = level - 1;
+		final int x = cx << 1;
+		final int y = cy << 1;
+		final int w = below == 0 ? store.getWidth() : widths[below];
+		final int h = below == 0 ? store.getHeight() : heights[below];
+		final char first = get(below, x, y);
+		char second = first;
+		int votes = 1;
+		int count = 1;
+		for (int j = y; j < y + 2 && j < h; ++j) {
+			for (int i = x; i < x + 2 && i < w; ++i) {
+				if (i == x && j == y) continue;
+				final char symbol = get(below, i, j);
+				++count;
+				if (symbol == first) ++votes;
+				else second = symbol;
+			}
+		}
+		// with four cells at most, a majority is the first symbol or the other one
+		if (2 * votes <= count) {
+			votes = 0;
+			for (int j = y; j < y + 2 && j < h; ++j) {
+				for (int i = x; i < x + 2 && i < w; ++i) if (get(below, i, j) == second) ++votes;
+			}
+			return 2 * votes > count ? second : mixed;
+		}
+		return first;
+	}
+
+	private char get(int level, int x, int y) {
+		if (level == 0) return store.get(x, y);
+		final int tile = (y >> TILE_SHIFT) * tilesX[level] + (x >> TILE_SHIFT);
+		final char[] tileCells = cells[level][tile];
+		return tileCells == null ? uniform[level][tile] : tileCells[((y & TILE_MASK) << TILE_SHIFT) | (x & TILE_MASK)];
+	}
+
+	// Set a cell, the cells of a uniform tile are allocated on its first change
+	private void set(int level, int x, int y, char symbol) {
+		final int tile = (y >> TILE_SHIFT) * tilesX[level] + (x >> TILE_SHIFT);
+		char[] tileCells = cells[level][tile];
+		if (tileCells == null) {
+			if (uniform[level][tile] == symbol) return;
+			tileCells = new char[1 << (2 * TILE_SHIFT)];
+			Arrays.fill(tileCells, uniform[level][tile]);
+			cells[level][tile] = tileCells;
+		}
+		tileCells[((y & TILE_MASK) << TILE_SHIFT) | (x & TILE_MASK)] = symbol;
+	}
+
+	// Set the cells [x1,x2]x[y1,y2], covered tiles become uniform
+	private void fill(int level, int x1, int y1, int x2, int y2, char symbol) {
+		for (int ty = y1 >> TILE_SHIFT; ty <= y2 >> TILE_SHIFT; ++ty) {
+			final int top = Math.max(y1, ty << TILE_SHIFT);
+			final int bottom = Math.min(y2, (ty << TILE_SHIFT) + TILE_MASK);
+			final boolean rowsCovered = top == ty << TILE_SHIFT && (bottom == (ty << TILE_SHIFT) + TILE_MASK || bottom == heights[level] - 1);
+			for (int tx = x1 >> TILE_SHIFT; tx <= x2 >> TILE_SHIFT; ++tx) {
+				final int left = Math.max(x1, tx << TILE_SHIFT);
+				final int right = Math.min(x2, (tx << TILE_SHIFT) + TILE_MASK);
+				if (rowsCovered && left == tx << TILE_SHIFT && (right == (tx << TILE_SHIFT) + TILE_MASK || right == widths[level] - 1)) {
+					final int tile = ty * tilesX[level] + tx;
+					cells[level][tile] = null;
+					uniform[level][tile] = symbol;
+					continue;
+				}
+				for (int y = top; y <= bottom; ++y) {
+					for (int x = left; x <= right; ++x) set(level, x, y, symbol);
+				}
+			}
+		}
+	}
+
+	private static long cellsOf(long pixels, int level) {
+		return (pixels + (1L << level) - 1) >> level;
+	}
+
+	private static long tilesOf(long pixels, int level) {
+		return (cellsOf(pixels, level) + TILE_MASK) >> TILE_SHIFT;
+	}
+
+	/**
+	 * Cells of a level
+	 */
+	private class Level implements PixelSource {
+
+		private final int level;
+
+		private Level(int level) {
+			this.level = level;
+		}
+
+		@Override
+		public int getWidth() {
+			return widths[level];
+		}
+
+		@Override
+		public int getHeight() {
+			return heights[level];
+		}
+
+		@Override
+		public char get(int x, int y) {
+			return MipmapPyramid.this.get(level, x, y);
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package com.painter.models.canvas.index;
+
+import java.util.Arrays;
+
+import com.painter.interfaces.CanvasObserver;
+import com.painter.interfaces.PixelStore;
+
+/**
+ * Occupancy index of the drawable area
+ * Keeps one bit per pixel (set when the pixel is not blank) twice:
+ * row by row and column by column, so horizontal and vertical spans
+ * are scanned for painted pixels 64 cells at a time.
+ * It is updated by the written areas. A reset leaves a blank area, so it
+ * only moves to a new generation: a row or column stamped with an older
+ * one is blank and is cleared on its first write, nothing is scanned.
+ * The pixels are scanned once, when the index is first used.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class OccupancyIndex implements CanvasObserver {
+
+	private static final int WORD_SHIFT = 6;
+	private static final int WORD_MASK = (1 << WORD_SHIFT) - 1;
+	private static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+	private final PixelStore store;
+	private final char blank;
+	private long[] rows = new long[0];
+	private long[] columns = new long[0];
+	// generation of the bits of every row and column
+	private int[] rowStamps = new int[0];
+	private int[] columnStamps = new int[0];
+	private int generation = 0;
+	private int rowWords = 0;
+	private int columnWords = 0;
+	private boolean valid = false;
+
+	public OccupancyIndex(PixelStore store, char blank) {
+		this.store = store;
+		this.blank = blank;
+	}
+
+	/**
+	 * Check if the bitmaps of the current area fit in memory
+	 */
+	public boolean isSupported() {
+		return fits(store.getWidth(), store.getHeight());
+	}
+
+	/**
+	 * @return first painted x in [x1,x2] of the row y, -1 if there is none
+	 */
+	public int nextInRow(int y, int x1, int x2) {
+		if (!valid) rebuild();
+		if (rowStamps[y] != generation) return -1;
+		return nextSetBit(rows, y * rowWords, x1, x2);
+	}
+
+	/**
+	 * @return first painted y in [y1,y2] of the column x, -1 if there is none
+	 */
+	public int nextInColumn(int x, int y1, int y2) {
+		if (!valid) rebuild();
+		if (columnStamps[x] != generation) return -1;
+		return nextSetBit(columns, x * columnWords, y1, y2);
+	}
+
+	@Override
+	public void onAreaWritten(int x1, int y1, int x2, int y2, char symbol) {
+		if (!valid) return;
+		final boolean painted = symbol != blank;
+		for (int y = y1; y <= y2; ++y) {
+			if (rowStamps[y] != generation) {
+				Arrays.fill(rows, y * rowWords, (y + 1) * rowWords, 0L);
+				rowStamps[y] = generation;
+			}
+			setBits(rows, y * rowWords, x1, x2, painted);
+		}
+		for (int x = x1; x <= x2; ++x) {
+			if (columnStamps[x] != generation) {
+				Arrays.fill(columns, x * columnWords, (x + 1) * columnWords, 0L);
+				columnStamps[x] = generation;
+			}
+			setBits(columns, x * columnWords, y1, y2, painted);
+		}
+	}
+
+	@Override
+	public void onReset(int width, int height) {
+		valid = fits(width, height);
+		if (!valid) return;
+		rowWords = (int) words(width);
+		columnWords = (int) words(height);
+		// buffers are reused, stale bits belong to an older generation
+		if (rows.length < rowWords * height) rows = new long[rowWords * height];
+		if (columns.length < columnWords * width) columns = new long[columnWords * width];
+		if (rowStamps.length < height) rowStamps = new int[height];
+		if (columnStamps.length < width) columnStamps = new int[width];
+		if (++generation == 0) {
+			Arrays.fill(rowStamps, 0);
+			Arrays.fill(columnStamps, 0);
+			generation = 1;
+		}
+	}
+
+	// First use: a blank index, then the painted runs
+	private void rebuild() {
+		final int w = store.getWidth();
+		final int h = store.getHeight();
+		onReset(w, h);
+		for (int y = 0; y < h; ++y) {
+			for (int x = 0; x < w;) {
+				final int end = store.runEnd(y, x, w);
+				if (store.get(x, y) != blank) onAreaWritten(x, y, end - 1, y, store.get(x, y));
+				x = end;
+			}
+		}
+	}
+
+	private static boolean fits(long w, long h) {
+		return words(w) * h <= MAX_ARRAY_SIZE && words(h) * w <= MAX_ARRAY_SIZE;
+	}
+
+	private static long words(long bits) {
+		return (bits + WORD_MASK) >> WORD_SHIFT;
+	}
+
+	// Set or clear the bits [from,to] of the line starting at the word offset
+	private static void setBits(long[] bits, int offset, int from, int to, boolean value) {
+		final int first = offset + (from >>> WORD_SHIFT);
+		final int last = offset + (to >>> WORD_SHIFT);
+		final long firstMask = -1L << from;
+		final long lastMask = -1L >>> (WORD_MASK - (to & WORD_MASK));
+		for (int i = first; i <= last; ++i) {
+			long mask = -1L;
+			if (i == first) mask &= firstMask;
+			if (i == last) mask &= lastMask;
+			if (value) bits[i] |= mask;
+			else bits[i] &= ~mask;
+		}
+	}
+
+	// First set bit in [from,to] of the line starting at the word offset, -1 if none
+	private static int nextSetBit(long[] bits, int offset, int from, int to) {
+		if (from > to) return -1;
+		int i = offset + (from >>> WORD_SHIFT);
+		final int last = offset + (to >>> WORD_SHIFT);
+		long word = bits[i] & (-1L << from);
+		while (word == 0) {
+			if (++i > last) return -1;
+			word = bits[i];
+		}
+		final int bit = ((i - offset) << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
+		return bit <= to ? bit : -1;
+	}
+}
@@ -0,0 +1,107 @@
+package com.painter.models.canvas.raster;
+
+import com.painter.utilities.IntList;
+
+/**
+ * Rasterizer of shapes into horizontal spans
+ * Every shape is turned into triplets (y, x1, x2), x1 <= x2, so the
+ * store can write each span at once instead of pixel by pixel.
+ * The spans of the last shape are kept in a reusable list.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class SpanRasterizer {
+
+	private final IntList spans = new IntList();
+
+	/**
+	 * Bresenham segment from (x1,y1) to (x2,y2)
+	 * Consecutive pixels of the same row are merged in one span.
+	 * @return spans as triplets y, x1, x2
+	 */
+	public IntList line(int x1, int y1, int x2, int y2) {
+		spans.clear();
+		// error terms in long: 2 * error overflows on long segments
+		final long dx = Math.abs((long) x2 - x1);
+		final long dy = -Math.abs((long) y2 - y1);
+		final int stepX = x1 < x2 ? 1 : -1;
+		final int stepY = y1 < y2 ? 1 : -1;
+		long error = dx + dy;
+		int x = x1;
+		int y = y1;
+		int runStart = x1;
+		while (true) {
+			if (x == x2 && y == y2) break;
+			final long doubleError = 2 * error;
+			if (doubleError >= dy) {
+				error += dy;
+				x += stepX;
+			}
+			if (doubleError <= dx) {
+				// the row changes: close the run
+				error += dx;
+				add(y, runStart, x - (doubleError >= dy ? stepX : 0));
+				y += stepY;
+				runStart = x;
+			}
+		}
+		add(y, runStart, x);
+		return spans;
+	}
+
+	/**
+	 * Filled rectangle between the corners (x1,y1) and (x2,y2)
+	 * @return spans as triplets y, x1, x2
+	 */
+	public IntList filledRectangle(int x1, int y1, int x2, int y2) {
+		spans.clear();
+		for (int y = Math.min(y1, y2); y <= Math.max(y1, y2); ++y) add(y, x1, x2);
+		return spans;
+	}
+
+	/**
+	 * Outline of the ellipse centered in (cx,cy) with radii rx and ry
+	 * The caller checks that the bounding box fits in the canvas.
+	 * Every row covers the pixels between its half-width and the half-width
+	 * of the next row towards the edge, so the outline is 8-connected.
+	 * @return spans as triplets y, x1, x2
+	 */
+	public IntList ellipse(int cx, int cy, int rx, int ry) {
+		spans.clear();
+		if (ry == 0) {
+			add(cy, (long) cx - rx, (long) cx + rx);
+			return spans;
+		}
+		int outer = halfWidth(0, rx, ry);
+		for (int dy = 0; dy <= ry; ++dy) {
+			final int next = dy < ry ? halfWidth(dy + 1, rx, ry) : -1;
+			final int inner = Math.min(next + 1, outer);
+			addOutlineRow(cy - dy, cx, inner, outer);
+			if (dy > 0) addOutlineRow(cy + dy, cx, inner, outer);
+			outer = next;
+		}
+		return spans;
+	}
+
+	// Rounded half-width of the ellipse on the row dy from the center
+	private static int halfWidth(int dy, int rx, int ry) {
+		final double ratio = (double) dy / ry;
+		return (int) Math.floor(rx * Math.sqrt(Math.max(0, 1 - ratio * ratio)) + 0.5);
+	}
+
+	// Both sides of the outline, a single span when they touch
+	private void addOutlineRow(int y, int cx, int inner, int outer) {
+		if (inner <= 0) add(y, (long) cx - outer, (long) cx + outer);
+		else {
+			add(y, (long) cx - outer, (long) cx - inner);
+			add(y, (long) cx + inner, (long) cx + outer);
+		}
+	}
+
+	private void add(int y, long x1, long x2) {
+		spans.add(y);
+		spans.add((int) Math.min(x1, x2));
+		spans.add((int) Math.max(x1, x2));
+	}
+}
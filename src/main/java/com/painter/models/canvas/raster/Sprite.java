@@ -0,0 +1,75 @@
+package com.painter.models.canvas.raster;
+
+import com.painter.interfaces.PixelStore;
+import com.painter.utilities.IntList;
+
+/**
+ * Pre-rasterized figure
+ * Only the painted runs are kept, as quadruplets (dy, dx1, dx2, symbol)
+ * relative to the top left corner: blank cells are transparent.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class Sprite {
+
+	private static final int RUN_FIELDS = 4;
+
+	private final int width;
+	private final int height;
+	private final IntList runs = new IntList();
+
+	private Sprite(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Capture the painted runs of the area [x1,x2]x[y1,y2], store coordinates
+	 */
+	public static Sprite capture(PixelStore store, int x1, int y1, int x2, int y2, char blank) {
+		final Sprite sprite = new Sprite(x2 - x1 + 1, y2 - y1 + 1);
+		for (int y = y1; y <= y2; ++y) {
+			for (int x = x1; x <= x2;) {
+				final char symbol = store.get(x, y);
+				final int end = store.runEnd(y, x, x2 + 1);
+				if (symbol != blank) {
+					sprite.runs.add(y - y1);
+					sprite.runs.add(x - x1);
+					sprite.runs.add(end - 1 - x1);
+					sprite.runs.add(symbol);
+				}
+				x = end;
+			}
+		}
+		return sprite;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getRunCount() {
+		return runs.size() / RUN_FIELDS;
+	}
+
+	public int getRunY(int run) {
+		return runs.get(run * RUN_FIELDS);
+	}
+
+	public int getRunStart(int run) {
+		return runs.get(run * RUN_FIELDS + 1);
+	}
+
+	public int getRunEnd(int run) {
+		return runs.get(run * RUN_FIELDS + 2);
+	}
+
+	public char getRunSymbol(int run) {
+		return (char) runs.get(run * RUN_FIELDS + 3);
+	}
+}
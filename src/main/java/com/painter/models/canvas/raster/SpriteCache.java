@@ -0,0 +1,42 @@
+package com.painter.models.canvas.raster;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of named sprites
+ * The least recently used sprite is evicted when the cache is full.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class SpriteCache {
+
+	private final Map<String, Sprite> sprites;
+
+	public SpriteCache(final int capacity) {
+		this.sprites = new LinkedHashMap<String, Sprite>(capacity, 0.75f, true) {
+			private static final long serialVersionUID = 8315290772043460817L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Sprite> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	public void put(String name, Sprite sprite) {
+		sprites.put(name, sprite);
+	}
+
+	/**
+	 * @return the sprite, null if it was never defined or it has been evicted
+	 */
+	public Sprite get(String name) {
+		return sprites.get(name);
+	}
+
+	public int size() {
+		return sprites.size();
+	}
+}
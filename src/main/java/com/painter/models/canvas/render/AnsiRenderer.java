@@ -0,0 +1,92 @@
+package com.painter.models.canvas.render;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+import com.painter.interfaces.PixelSource;
+import com.painter.models.canvas.index.DirtyRegionTracker;
+
+/**
+ * Incremental renderer for ANSI terminals
+ * Only the dirty spans are written, each after a cursor move; the whole
+ * canvas is repainted after a reset or when the dirty area is larger than
+ * the threshold. The cursor is left on the line below the canvas, whose
+ * top left corner is the top left corner of the screen.
+ * Only the changes inside the rendered window are written.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class AnsiRenderer {
+
+	private static final char ESCAPE = '\u001B';
+	private static final byte[] CLEAR_SCREEN = {ESCAPE, '[', 'H', ESCAPE, '[', '2', 'J'};
+	private static final byte[] CLEAR_BELOW = {ESCAPE, '[', 'J'};
+	// terminal lines and columns start from 1, the border comes first
+	private static final int FIRST_CELL = 2;
+	// repaint when more than 1/REPAINT_RATIO of the canvas changed
+	private static final int REPAINT_RATIO = 4;
+
+	private final StreamRenderer full;
+	private final ByteSink sink = new ByteSink();
+
+	public AnsiRenderer(char vertical, char horizontal, char blank) {
+		this.full = new StreamRenderer(vertical, horizontal, blank);
+	}
+
+	/**
+	 * Write the changes tracked since the last render, then clear them
+	 * @throws IOException
+	 */
+	public void render(PixelSource source, DirtyRegionTracker dirty, WritableByteChannel out) throws IOException {
+		render(source, 0, 0, source.getWidth(), source.getHeight(), dirty, out);
+	}
+
+	/**
+	 * Write the changes tracked since the last render in the window
+	 * starting in (x,y), then clear them
+	 * @throws IOException
+	 */
+	public void render(PixelSource source, int x, int y, int w, int h, DirtyRegionTracker dirty, WritableByteChannel out) throws IOException {
+		sink.open(out);
+		if (dirty.isReset() || visibleArea(dirty, x, y, w, h) > (long) w * h / REPAINT_RATIO) {
+			sink.put(CLEAR_SCREEN);
+			sink.flush();
+			full.render(source, x, y, w, h, out);
+		} else {
+			for (int i = 0; i < dirty.getDirtyRowCount(); ++i) {
+				final int row = dirty.getDirtyRow(i);
+				final int first = Math.max(dirty.getFirst(row), x);
+				final int last = Math.min(dirty.getLast(row), x + w - 1);
+				if (row < y || row >= y + h || first > last) continue;
+				moveTo((long) row - y + FIRST_CELL, (long) first - x + FIRST_CELL);
+				for (int j = first; j <= last; ++j) sink.putChar(source.get(j, row));
+			}
+			// back below the canvas
+			moveTo((long) h + 2 * FIRST_CELL - 1, 1);
+			sink.put(CLEAR_BELOW);
+			sink.flush();
+		}
+		dirty.clear();
+	}
+
+	// Dirty pixels in the window
+	private static long visibleArea(DirtyRegionTracker dirty, int x, int y, int w, int h) {
+		long area = 0;
+		for (int i = 0; i < dirty.getDirtyRowCount(); ++i) {
+			final int row = dirty.getDirtyRow(i);
+			if (row < y || row >= y + h) continue;
+			area += Math.max(0, Math.min(dirty.getLast(row), x + w - 1) - Math.max(dirty.getFirst(row), x) + 1);
+		}
+		return area;
+	}
+
+	private void moveTo(long line, long column) throws IOException {
+		sink.putChar(ESCAPE);
+		sink.putChar('[');
+		sink.putNumber((int) Math.min(line, Integer.MAX_VALUE));
+		sink.putChar(';');
+		sink.putNumber((int) Math.min(column, Integer.MAX_VALUE));
+		sink.putChar('H');
+	}
+}
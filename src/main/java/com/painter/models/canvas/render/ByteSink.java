@@ -0,0 +1,66 @@
+package com.painter.models.canvas.render;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Reusable buffer of UTF-8 bytes, written to a channel when full
+ *
+ * @author Attilio Caravelli
+ *
+ */
+class ByteSink {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	// bytes of the longest UTF-8 encoding of a char
+	static final int MAX_CHAR_BYTES = 3;
+
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private WritableByteChannel out = null;
+
+	/**
+	 * Start writing to the channel
+	 */
+	void open(WritableByteChannel out) {
+		this.out = out;
+		buffer.clear();
+	}
+
+	void putChar(char c) throws IOException {
+		if (buffer.remaining() < MAX_CHAR_BYTES) flush();
+		encode(c, buffer);
+	}
+
+	void putNumber(int value) throws IOException {
+		if (value >= 10) putNumber(value / 10);
+		putChar((char) ('0' + value % 10));
+	}
+
+	void put(byte[] bytes) throws IOException {
+		for (int from = 0; from < bytes.length;) {
+			if (!buffer.hasRemaining()) flush();
+			final int length = Math.min(buffer.remaining(), bytes.length - from);
+			buffer.put(bytes, from, length);
+			from += length;
+		}
+	}
+
+	void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) out.write(buffer);
+		buffer.clear();
+	}
+
+	static void encode(char c, ByteBuffer dst) {
+		if (c < 0x80) dst.put((byte) c);
+		else if (c < 0x800) {
+			dst.put((byte) (0xC0 | (c >> 6)));
+			dst.put((byte) (0x80 | (c & 0x3F)));
+		} else {
+			dst.put((byte) (0xE0 | (c >> 12)));
+			dst.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+			dst.put((byte) (0x80 | (c & 0x3F)));
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.painter.models.canvas.render;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import com.painter.interfaces.PixelSource;
+
+/**
+ * Renderer of a pixel source with its borders, as UTF-8 bytes
+ * Rows are encoded one at a time into a reusable buffer, which is written
+ * to the channel when full: the memory used is a few rows whatever the size
+ * of the canvas. The horizontal border and the blank row are encoded once
+ * per width and copied as they are.
+ * A window of the source is read by runs of equal pixels, so its cost
+ * depends on the window and not on the source.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class StreamRenderer {
+
+	private static final char NEW_LINE = '\n';
+
+	private final char vertical;
+	private final char horizontal;
+	private final char blank;
+	private ByteSink sink = null;
+	private char[] row = new char[0];
+	private byte[] border = null;
+	private byte[] blankRow = null;
+
+	public StreamRenderer(char vertical, char horizontal, char blank) {
+		this.vertical = vertical;
+		this.horizontal = horizontal;
+		this.blank = blank;
+	}
+
+	/**
+	 * Write the source framed by its borders
+	 * @throws IOException
+	 */
+	public void render(PixelSource source, WritableByteChannel out) throws IOException {
+		final int w = source.getWidth();
+		final int h = source.getHeight();
+		prepare(w);
+		sink.open(out);
+		sink.put(border);
+		for (int y = 0; y < h; ++y) {
+			if (source.get(0, y) == blank && source.runEnd(y, 0, w) == w) {
+				sink.put(blankRow);
+				continue;
+			}
+			source.readRow(y, row);
+			sink.putChar(vertical);
+			for (int x = 0; x < w; ++x) sink.putChar(row[x]);
+			sink.putChar(vertical);
+			sink.putChar(NEW_LINE);
+		}
+		sink.put(border);
+		sink.flush();
+	}
+
+	/**
+	 * Write the window of the source starting in (x,y), framed by its borders
+	 * @throws IOException
+	 */
+	public void render(PixelSource source, int x, int y, int w, int h, WritableByteChannel out) throws IOException {
+		prepare(w);
+		sink.open(out);
+		sink.put(border);
+		final int end = x + w;
+		for (int j = y; j < y + h; ++j) {
+			if (source.get(x, j) == blank && source.runEnd(j, x, end) == end) {
+				sink.put(blankRow);
+				continue;
+			}
+			sink.putChar(vertical);
+			for (int i = x; i < end;) {
+				final char symbol = source.get(i, j);
+				final int runEnd = source.runEnd(j, i, end);
+				for (; i < runEnd; ++i) sink.putChar(symbol);
+			}
+			sink.putChar(vertical);
+			sink.putChar(NEW_LINE);
+		}
+		sink.put(border);
+		sink.flush();
+	}
+
+	// Buffers and templates of the width
+	private void prepare(int w) {
+		if (sink == null) sink = new ByteSink();
+		if (row.length == w && border != null) return;
+		row = new char[w];
+		char[] template = new char[w + 2];
+		Arrays.fill(template, horizontal);
+		border = encode(template);
+		Arrays.fill(template, blank);
+		template[0] = vertical;
+		template[w + 1] = vertical;
+		blankRow = encode(template);
+	}
+
+	private static byte[] encode(char[] line) {
+		final ByteBuffer encoded = ByteBuffer.allocate(line.length * ByteSink.MAX_CHAR_BYTES + 1);
+		for (char c : line) ByteSink.encode(c, encoded);
+		ByteSink.encode(NEW_LINE, encoded);
+		return Arrays.copyOf(encoded.array(), encoded.position());
+	}
+}
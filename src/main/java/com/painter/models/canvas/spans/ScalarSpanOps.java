@@ -0,0 +1,26 @@
+package com.painter.models.canvas.spans;
+
+import java.util.Arrays;
+
+import com.painter.interfaces.SpanOps;
+
+/**
+ * Span operations with plain loops, always available
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class ScalarSpanOps implements SpanOps {
+
+	@Override
+	public void fill(char[] cells, int from, int to, char symbol) {
+		Arrays.fill(cells, from, to, symbol);
+	}
+
+	@Override
+	public int mismatch(char[] cells, int from, int to, char symbol) {
+		int i = from;
+		while (i < to && cells[i] == symbol) ++i;
+		return i;
+	}
+}
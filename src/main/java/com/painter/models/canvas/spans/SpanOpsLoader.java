@@ -0,0 +1,39 @@
+package com.painter.models.canvas.spans;
+
+import com.painter.interfaces.SpanOps;
+
+/**
+ * Loader of the span operations
+ * The vectorized implementation is compiled only by the "vector" profile
+ * and needs the jdk.incubator.vector module at runtime, so it is looked up
+ * by name and the scalar one is used whenever it cannot be loaded.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class SpanOpsLoader {
+
+	private static final String VECTOR_SPAN_OPS = "com.painter.models.canvas.spans.VectorSpanOps";
+	private static final SpanOps INSTANCE = load();
+
+	private SpanOpsLoader() {
+	}
+
+	/**
+	 * @return the fastest span operations available on this VM
+	 */
+	public static SpanOps get() {
+		return INSTANCE;
+	}
+
+	private static SpanOps load() {
+		try {
+			SpanOps ops = (SpanOps) Class.forName(VECTOR_SPAN_OPS).getDeclaredConstructor().newInstance();
+			// the module is resolved on first use
+			ops.mismatch(new char[1], 0, 1, ' ');
+			return ops;
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return new ScalarSpanOps();
+		}
+	}
+}
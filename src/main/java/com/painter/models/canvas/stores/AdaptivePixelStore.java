@@ -0,0 +1,217 @@
+package com.painter.models.canvas.stores;
+
+import java.util.BitSet;
+
+import com.painter.interfaces.PixelStore;
+
+/**
+ * Adaptive pixel store
+ * Delegates to a sparse tiled, a run-length or a dense flat store and
+ * migrates between them at command boundaries (commit) following the
+ * density and the number of runs of the content.
+ * A migration happens only when the new layout is estimated to need
+ * less than half of the memory of the current one, so it never thrashes.
+ * The estimates come from counters kept by every write, the content is
+ * never scanned to take a decision: every written span adds its two ends
+ * to the runs, every tile it covers only partly is mixed and every tile
+ * it covers entirely is uniform, since only blank points are painted.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class AdaptivePixelStore implements PixelStore {
+
+	private static final int TILE_SHIFT = 6;
+	private static final int TILE_MASK = (1 << TILE_SHIFT) - 1;
+	// a large blank canvas starts sparse
+	private static final long SPARSE_AREA = 1L << 16;
+	// statistics are refreshed after this many commands or written cells (in area fraction)
+	private static final int EVALUATION_COMMANDS = 16;
+	private static final int EVALUATION_AREA_SHIFT = 3;
+	private static final int HYSTERESIS = 2;
+
+	private PixelStore store = new FlatPixelStore();
+	private char blank = ' ';
+	private int commands = 0;
+	private long writtenCells = 0;
+	// estimated content, kept until the next resize or clear
+	private long runs = 0;
+	private final BitSet mixedTiles = new BitSet();
+	private int tilesX = 0;
+	private boolean tiledSupported = false;
+
+	@Override
+	public boolean supports(int width, int height) {
+		return new TiledPixelStore().supports(width, height) || new RunLengthPixelStore().supports(width, height);
+	}
+
+	@Override
+	public void resize(int width, int height, char blank) {
+		this.blank = blank;
+		final boolean sparse = (long) width * height >= SPARSE_AREA || !new FlatPixelStore().supports(width, height);
+		tiledSupported = new TiledPixelStore().supports(width, height);
+		// the current layout is reused with its buffers
+		if (sparse && tiledSupported && !(store instanceof TiledPixelStore)) store = new TiledPixelStore();
+		else if (sparse && !tiledSupported && !(store instanceof RunLengthPixelStore)) store = new RunLengthPixelStore();
+		else if (!sparse && !(store instanceof FlatPixelStore)) store = new FlatPixelStore();
+		store.resize(width, height, blank);
+		tilesX = tiledSupported ? (width + TILE_MASK) >> TILE_SHIFT : 0;
+		resetStatistics();
+		resetContent();
+	}
+
+	@Override
+	public void clear(char blank) {
+		// the layout is kept, the next evaluations move it if needed
+		this.blank = blank;
+		store.clear(blank);
+		resetStatistics();
+		resetContent();
+	}
+
+	@Override
+	public String getRepresentation() {
+		return store.getRepresentation();
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		return store.getMemoryUsage();
+	}
+
+	@Override
+	public void commit() {
+		++commands;
+		final long area = (long) getWidth() * getHeight();
+		if (writtenCells == 0) return;
+		if (commands < EVALUATION_COMMANDS && writtenCells < (area >> EVALUATION_AREA_SHIFT)) return;
+		resetStatistics();
+		final PixelStore best = bestStore();
+		if (best != null) migrate(best);
+	}
+
+	@Override
+	public int getWidth() {
+		return store.getWidth();
+	}
+
+	@Override
+	public int getHeight() {
+		return store.getHeight();
+	}
+
+	@Override
+	public char get(int x, int y) {
+		return store.get(x, y);
+	}
+
+	@Override
+	public void set(int x, int y, char symbol) {
+		++writtenCells;
+		if (store.get(x, y) != symbol) written(x, y, x, y);
+		store.set(x, y, symbol);
+	}
+
+	@Override
+	public void fillSpan(int y, int x1, int x2, char symbol) {
+		writtenCells += x2 - x1 + 1;
+		written(x1, y, x2, y);
+		store.fillSpan(y, x1, x2, symbol);
+	}
+
+	@Override
+	public void fillRect(int x1, int y1, int x2, int y2, char symbol) {
+		writtenCells += (x2 - x1 + 1L) * (y2 - y1 + 1L);
+		written(x1, y1, x2, y2);
+		store.fillRect(x1, y1, x2, y2, symbol);
+	}
+
+	@Override
+	public int uniformBlockShift(int x, int y) {
+		return store.uniformBlockShift(x, y);
+	}
+
+	@Override
+	public int runEnd(int y, int x, int limit) {
+		return store.runEnd(y, x, limit);
+	}
+
+	@Override
+	public void readRow(int y, char[] dst) {
+		store.readRow(y, dst);
+	}
+
+	private void resetStatistics() {
+		commands = 0;
+		writtenCells = 0;
+	}
+
+	// a blank run in every row
+	private void resetContent() {
+		runs = getHeight();
+		mixedTiles.clear();
+	}
+
+	// Update the estimated content with an area written with a single symbol
+	private void written(int x1, int y1, int x2, int y2) {
+		runs = Math.min(runs + 2 * (y2 - y1 + 1L), (long) getWidth() * getHeight());
+		if (!tiledSupported) return;
+		for (int ty = y1 >> TILE_SHIFT; ty <= y2 >> TILE_SHIFT; ++ty) {
+			final boolean rowsCovered = ty << TILE_SHIFT >= y1 && Math.min((ty + 1L) << TILE_SHIFT, getHeight()) - 1 <= y2;
+			for (int tx = x1 >> TILE_SHIFT; tx <= x2 >> TILE_SHIFT; ++tx) {
+				final boolean covered = rowsCovered && tx << TILE_SHIFT >= x1 && Math.min((tx + 1L) << TILE_SHIFT, getWidth()) - 1 <= x2;
+				mixedTiles.set(ty * tilesX + tx, !covered);
+			}
+		}
+	}
+
+	/**
+	 * Estimate the memory of every layout from the counters of the content
+	 * @return the store to migrate to, null to keep the current one
+	 */
+	private PixelStore bestStore() {
+		final int w = getWidth();
+		final int h = getHeight();
+		final long flat = (long) w * h * Character.BYTES;
+		final long tiled = tiledSupported ? (long) tilesX * ((h + TILE_MASK) >> TILE_SHIFT) * (Long.BYTES + Character.BYTES)
+				+ (long) mixedTiles.cardinality() * (Character.BYTES << (2 * TILE_SHIFT)) : Long.MAX_VALUE;
+		final long rle = h * (long) Long.BYTES + runs * (Integer.BYTES + Character.BYTES) * 2;
+		final long current = estimate(store.getRepresentation(), flat, tiled, rle);
+		String best = "FLAT";
+		long bestMemory = new FlatPixelStore().supports(w, h) ? flat : Long.MAX_VALUE;
+		if (tiled < bestMemory) {
+			best = "TILED";
+			bestMemory = tiled;
+		}
+		if (rle < bestMemory) {
+			best = "RLE";
+			bestMemory = rle;
+		}
+		if (best.equals(store.getRepresentation()) || bestMemory * HYSTERESIS > current) return null;
+		if ("TILED".equals(best)) return new TiledPixelStore();
+		if ("RLE".equals(best)) return new RunLengthPixelStore();
+		return new FlatPixelStore();
+	}
+
+	private long estimate(String representation, long flat, long tiled, long rle) {
+		if ("TILED".equals(representation)) return tiled;
+		if ("RLE".equals(representation)) return rle;
+		return flat;
+	}
+
+	// Copy the content run by run
+	private void migrate(PixelStore target) {
+		final int w = getWidth();
+		final int h = getHeight();
+		target.resize(w, h, blank);
+		for (int y = 0; y < h; ++y) {
+			for (int x = 0; x < w;) {
+				final char symbol = store.get(x, y);
+				final int end = store.runEnd(y, x, w);
+				if (symbol != blank) target.fillSpan(y, x, end - 1, symbol);
+				x = end;
+			}
+		}
+		store = target;
+	}
+}
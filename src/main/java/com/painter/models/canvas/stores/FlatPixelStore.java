@@ -0,0 +1,107 @@
+package com.painter.models.canvas.stores;
+
+import com.painter.interfaces.PixelStore;
+import com.painter.interfaces.SpanOps;
+import com.painter.models.canvas.spans.SpanOpsLoader;
+
+/**
+ * Dense pixel store backed by one flat char array
+ * indexed y*stride+x
+ * Clearing is constant time: rows are generation-stamped and blanked
+ * on their first write, the array is reused when the new area fits.
+ * Spans are filled and compared with the (vectorized if available) span operations.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class FlatPixelStore implements PixelStore {
+
+	// Some VMs reserve header words in an array
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	// a larger buffer is released instead of being reused
+	private static final int REUSE_FACTOR = 4;
+	private static final SpanOps SPANS = SpanOpsLoader.get();
+
+	private char[] pixels = new char[0];
+	private final RowGenerations rows = new RowGenerations();
+	private int width = 0;
+	private int height = 0;
+	private char blank = ' ';
+
+	@Override
+	public boolean supports(int width, int height) {
+		return (long) width * height <= MAX_ARRAY_SIZE;
+	}
+
+	@Override
+	public void resize(int width, int height, char blank) {
+		this.width = width;
+		this.height = height;
+		this.blank = blank;
+		final int area = width * height;
+		if (pixels.length < area || pixels.length > (long) area * REUSE_FACTOR) pixels = new char[area];
+		rows.resize(height);
+	}
+
+	@Override
+	public void clear(char blank) {
+		this.blank = blank;
+		rows.next();
+	}
+
+	@Override
+	public String getRepresentation() {
+		return "FLAT";
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		return pixels.length * (long) Character.BYTES + rows.getMemoryUsage();
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public char get(int x, int y) {
+		return rows.isWritten(y) ? pixels[y * width + x] : blank;
+	}
+
+	@Override
+	public void set(int x, int y, char symbol) {
+		writeRow(y);
+		pixels[y * width + x] = symbol;
+	}
+
+	@Override
+	public void fillSpan(int y, int x1, int x2, char symbol) {
+		writeRow(y);
+		int offset = y * width;
+		SPANS.fill(pixels, offset + x1, offset + x2 + 1, symbol);
+	}
+
+	@Override
+	public int runEnd(int y, int x, int limit) {
+		if (!rows.isWritten(y)) return limit;
+		final int offset = y * width;
+		return SPANS.mismatch(pixels, offset + x + 1, offset + limit, pixels[offset + x]) - offset;
+	}
+
+	@Override
+	public void readRow(int y, char[] dst) {
+		if (rows.isWritten(y)) System.arraycopy(pixels, y * width, dst, 0, width);
+		else SPANS.fill(dst, 0, width, blank);
+	}
+
+	// A blank row left by a previous generation is cleared on its first write
+	private void writeRow(int y) {
+		if (rows.touch(y)) SPANS.fill(pixels, y * width, (y + 1) * width, blank);
+	}
+}
@@ -0,0 +1,181 @@
+package com.painter.models.canvas.stores;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import com.painter.interfaces.PixelStore;
+
+/**
+ * Off-heap pixel store
+ * Pixels live outside the Java heap, one byte each, addressed by a long offset
+ * y*width+x and split into segments of 1GB.
+ * Small areas use direct buffers, larger ones a memory-mapped scratch file,
+ * so a canvas can be larger than the heap and than 2^31 cells.
+ * Symbols are stored as ISO-8859-1 bytes xor-ed with the blank symbol:
+ * freshly allocated (zeroed) memory is already a blank canvas.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class MappedPixelStore implements PixelStore {
+
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+	private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+	private static final long DIRECT_LIMIT = 64L << 20;
+	private static final int MAX_SYMBOL = 0xFF;
+
+	private ByteBuffer[] segments = new ByteBuffer[0];
+	private final byte[] chunk = new byte[8192];
+	private File scratchFile = null;
+	private int width = 0;
+	private int height = 0;
+	private char blank = ' ';
+
+	@Override
+	public boolean supports(int width, int height) {
+		final long size = (long) width * height;
+		if (size <= DIRECT_LIMIT) return true;
+		return new File(System.getProperty("java.io.tmpdir")).getUsableSpace() >= size;
+	}
+
+	@Override
+	public void resize(int width, int height, char blank) {
+		this.width = width;
+		this.height = height;
+		allocate(blank);
+	}
+
+	@Override
+	public void clear(char blank) {
+		allocate(blank);
+	}
+
+	@Override
+	public String getRepresentation() {
+		return "MAPPED";
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		// off-heap bytes
+		return (long) width * height;
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public char get(int x, int y) {
+		final long offset = offset(x, y);
+		return decode(segments[(int) (offset >>> SEGMENT_SHIFT)].get((int) (offset & SEGMENT_MASK)));
+	}
+
+	@Override
+	public void set(int x, int y, char symbol) {
+		final long offset = offset(x, y);
+		segments[(int) (offset >>> SEGMENT_SHIFT)].put((int) (offset & SEGMENT_MASK), encode(symbol));
+	}
+
+	@Override
+	public void fillSpan(int y, int x1, int x2, char symbol) {
+		long offset = offset(x1, y);
+		long remaining = x2 - x1 + 1L;
+		// a short span fills only its bytes of the chunk
+		Arrays.fill(chunk, 0, (int) Math.min(remaining, chunk.length), encode(symbol));
+		while (remaining > 0) {
+			ByteBuffer segment = segments[(int) (offset >>> SEGMENT_SHIFT)].duplicate();
+			int position = (int) (offset & SEGMENT_MASK);
+			int length = (int) Math.min(Math.min(remaining, chunk.length), SEGMENT_SIZE - position);
+			segment.position(position);
+			segment.put(chunk, 0, length);
+			offset += length;
+			remaining -= length;
+		}
+	}
+
+	@Override
+	public void readRow(int y, char[] dst) {
+		long offset = offset(0, y);
+		int x = 0;
+		while (x < width) {
+			ByteBuffer segment = segments[(int) (offset >>> SEGMENT_SHIFT)].duplicate();
+			int position = (int) (offset & SEGMENT_MASK);
+			int length = (int) Math.min(Math.min(width - x, chunk.length), SEGMENT_SIZE - position);
+			segment.position(position);
+			segment.get(chunk, 0, length);
+			for (int i = 0; i < length; ++i) dst[x + i] = decode(chunk[i]);
+			offset += length;
+			x += length;
+		}
+	}
+
+	/**
+	 * @return true if the pixels are in a memory-mapped file
+	 */
+	public boolean isMapped() {
+		return scratchFile != null;
+	}
+
+	private long offset(int x, int y) {
+		return (long) y * width + x;
+	}
+
+	private byte encode(char symbol) {
+		if (symbol > MAX_SYMBOL) throw new IllegalArgumentException("Symbol not supported by the off-heap canvas");
+		return (byte) (symbol ^ blank);
+	}
+
+	private char decode(byte value) {
+		return (char) ((value ^ blank) & MAX_SYMBOL);
+	}
+
+	private void allocate(char blank) {
+		this.blank = blank;
+		final long size = (long) width * height;
+		final int count = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+		releaseScratchFile();
+		segments = new ByteBuffer[count];
+		if (size <= DIRECT_LIMIT) {
+			for (int i = 0; i < count; ++i) segments[i] = ByteBuffer.allocateDirect((int) segmentLength(size, i));
+		} else mapScratchFile(size);
+	}
+
+	private void mapScratchFile(long size) {
+		try {
+			scratchFile = File.createTempFile("painter", ".canvas");
+			scratchFile.deleteOnExit();
+			try (RandomAccessFile file = new RandomAccessFile(scratchFile, "rw")) {
+				// sparse file: never written pages are zero, i.e. blank
+				file.setLength(size);
+				FileChannel channel = file.getChannel();
+				for (int i = 0; i < segments.length; ++i) {
+					segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * SEGMENT_SIZE, segmentLength(size, i));
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void releaseScratchFile() {
+		if (scratchFile != null && !scratchFile.delete()) scratchFile.deleteOnExit();
+		scratchFile = null;
+	}
+
+	private static long segmentLength(long size, int segment) {
+		return Math.min(SEGMENT_SIZE, size - segment * SEGMENT_SIZE);
+	}
+}
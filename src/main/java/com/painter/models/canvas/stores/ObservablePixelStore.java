@@ -0,0 +1,111 @@
+package com.painter.models.canvas.stores;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.painter.interfaces.CanvasObserver;
+import com.painter.interfaces.PixelStore;
+
+/**
+ * Pixel store decorator notifying every write to the observers
+ * 
+ * @author Attilio Caravelli
+ *
+ */
+public class ObservablePixelStore implements PixelStore {
+
+	private final PixelStore store;
+	private final List<CanvasObserver> observers = new ArrayList<>();
+
+	public ObservablePixelStore(PixelStore store) {
+		this.store = store;
+	}
+
+	public void addObserver(CanvasObserver observer) {
+		observers.add(observer);
+	}
+
+	public void removeObserver(CanvasObserver observer) {
+		observers.remove(observer);
+	}
+
+	@Override
+	public boolean supports(int width, int height) {
+		return store.supports(width, height);
+	}
+
+	@Override
+	public void resize(int width, int height, char blank) {
+		store.resize(width, height, blank);
+		for (CanvasObserver observer : observers) observer.onReset(width, height);
+	}
+
+	@Override
+	public void clear(char blank) {
+		store.clear(blank);
+		for (CanvasObserver observer : observers) observer.onReset(getWidth(), getHeight());
+	}
+
+	@Override
+	public String getRepresentation() {
+		return store.getRepresentation();
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		return store.getMemoryUsage();
+	}
+
+	@Override
+	public void commit() {
+		store.commit();
+	}
+
+	@Override
+	public int getWidth() {
+		return store.getWidth();
+	}
+
+	@Override
+	public int getHeight() {
+		return store.getHeight();
+	}
+
+	@Override
+	public char get(int x, int y) {
+		return store.get(x, y);
+	}
+
+	@Override
+	public void set(int x, int y, char symbol) {
+		store.set(x, y, symbol);
+		for (CanvasObserver observer : observers) observer.onAreaWritten(x, y, x, y, symbol);
+	}
+
+	@Override
+	public void fillSpan(int y, int x1, int x2, char symbol) {
+		store.fillSpan(y, x1, x2, symbol);
+		for (CanvasObserver observer : observers) observer.onAreaWritten(x1, y, x2, y, symbol);
+	}
+
+	@Override
+	public void fillRect(int x1, int y1, int x2, int y2, char symbol) {
+		store.fillRect(x1, y1, x2, y2, symbol);
+		for (CanvasObserver observer : observers) observer.onAreaWritten(x1, y1, x2, y2, symbol);
+	}
+
+	@Override
+	public int uniformBlockShift(int x, int y) {
+		return store.uniformBlockShift(x, y);
+	}
+
+	@Override
+	public int runEnd(int y, int x, int limit) {
+		return store.runEnd(y, x, limit);
+	}
+
+	@Override
+	public void readRow(int y, char[] dst) {
+		store.readRow(y, dst);
+	}
+}
@@ -0,0 +1,214 @@
+package com.painter.models.canvas.stores;
+
+import java.util.Arrays;
+
+import com.painter.interfaces.PixelStore;
+
+/**
+ * Palette-indexed pixel store
+ * Every pixel is a small palette index bit-packed in a long array:
+ * 4 bits while the palette has up to 16 symbols, then 5 bits (32 symbols).
+ * Wider palettes are still accepted (8 and 16 bits) to never lose a symbol.
+ * Each row starts on a word boundary, so spans are filled and compared
+ * one word (12 or 16 pixels) at a time.
+ * Rows are generation-stamped, so clearing is constant time.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class PackedPixelStore implements PixelStore {
+
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	private static final int MIN_BITS = 4;
+	private static final int[] BITS_STEPS = {4, 5, 8, 16};
+	// a larger buffer is released instead of being reused
+	private static final int REUSE_FACTOR = 4;
+
+	private long[] words = new long[0];
+	private final RowGenerations rows = new RowGenerations();
+	private int width = 0;
+	private int height = 0;
+
+	private char[] palette = new char[1 << MIN_BITS];
+	private int paletteSize = 0;
+
+	private int bits;
+	private int cellsPerWord;
+	private int wordsPerRow;
+	private long cellMask;
+
+	public PackedPixelStore() {
+		setBits(MIN_BITS);
+	}
+
+	@Override
+	public boolean supports(int width, int height) {
+		// sized for the 5 bits layout covering every symbol of the command language
+		return wordsPerRow(width, 64/5) * height <= MAX_ARRAY_SIZE;
+	}
+
+	@Override
+	public void resize(int width, int height, char blank) {
+		this.width = width;
+		this.height = height;
+		setBits(MIN_BITS);
+		final long size = wordsPerRow * (long) height;
+		if (words.length < size || words.length > size * REUSE_FACTOR) words = new long[(int) size];
+		rows.resize(height);
+		resetPalette(blank);
+	}
+
+	@Override
+	public void clear(char blank) {
+		// the narrowest layout always fits in the current words
+		setBits(MIN_BITS);
+		rows.next();
+		resetPalette(blank);
+	}
+
+	@Override
+	public String getRepresentation() {
+		return "PACKED";
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		return words.length * (long) Long.BYTES + palette.length * (long) Character.BYTES + rows.getMemoryUsage();
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public char get(int x, int y) {
+		return palette[index(x, y)];
+	}
+
+	@Override
+	public void set(int x, int y, char symbol) {
+		final int value = paletteIndex(symbol);
+		writeRow(y);
+		final int word = y * wordsPerRow + x / cellsPerWord;
+		final int shift = (x % cellsPerWord) * bits;
+		words[word] = (words[word] & ~(cellMask << shift)) | ((long) value << shift);
+	}
+
+	@Override
+	public void fillSpan(int y, int x1, int x2, char symbol) {
+		final long pattern = replicate(paletteIndex(symbol));
+		writeRow(y);
+		final int rowStart = y * wordsPerRow;
+		final int firstWord = x1 / cellsPerWord;
+		final int lastWord = x2 / cellsPerWord;
+		for (int w = firstWord; w <= lastWord; ++w) {
+			long mask = spanMask(w, x1, x2);
+			words[rowStart + w] = (words[rowStart + w] & ~mask) | (pattern & mask);
+		}
+	}
+
+	@Override
+	public int runEnd(int y, int x, int limit) {
+		if (!rows.isWritten(y)) return limit;
+		final long pattern = replicate(index(x, y));
+		final int rowStart = y * wordsPerRow;
+		final int lastWord = (limit - 1) / cellsPerWord;
+		for (int w = x / cellsPerWord; w <= lastWord; ++w) {
+			long diff = (words[rowStart + w] ^ pattern) & spanMask(w, x, limit - 1);
+			if (diff != 0) return w * cellsPerWord + Long.numberOfTrailingZeros(diff) / bits;
+		}
+		return limit;
+	}
+
+	/**
+	 * @return bits used by each pixel
+	 */
+	public int getBitsPerPixel() {
+		return bits;
+	}
+
+	private int index(int x, int y) {
+		if (!rows.isWritten(y)) return 0;
+		return (int) ((words[y * wordsPerRow + x / cellsPerWord] >>> ((x % cellsPerWord) * bits)) & cellMask);
+	}
+
+	// Bits of the word w covered by the cells [x1,x2] of its row
+	private long spanMask(int w, int x1, int x2) {
+		final int first = Math.max(x1 - w * cellsPerWord, 0);
+		final int last = Math.min(x2 - w * cellsPerWord, cellsPerWord - 1);
+		final int usedBits = (last - first + 1) * bits;
+		final long mask = usedBits == 64 ? -1L : (1L << usedBits) - 1;
+		return mask << (first * bits);
+	}
+
+	private long replicate(int value) {
+		long pattern = 0L;
+		for (int c = 0; c < cellsPerWord; ++c) pattern |= (long) value << (c * bits);
+		return pattern;
+	}
+
+	private int paletteIndex(char symbol) {
+		for (int i = 0; i < paletteSize; ++i) {
+			if (palette[i] == symbol) return i;
+		}
+		if (paletteSize == palette.length) widen();
+		palette[paletteSize] = symbol;
+		return paletteSize++;
+	}
+
+	private void resetPalette(char blank) {
+		palette = new char[1 << MIN_BITS];
+		palette[0] = blank;
+		paletteSize = 1;
+	}
+
+	// Move to the next layout and repack every pixel
+	private void widen() {
+		int next = bits;
+		for (int step : BITS_STEPS) {
+			if (step > bits) {
+				next = step;
+				break;
+			}
+		}
+		final long[] oldWords = words;
+		final int oldBits = bits;
+		final int oldCellsPerWord = cellsPerWord;
+		final int oldWordsPerRow = wordsPerRow;
+		final long oldMask = cellMask;
+		setBits(next);
+		words = new long[(int) (wordsPerRow * (long) height)];
+		for (int y = 0; y < height; ++y) {
+			if (!rows.isWritten(y)) continue;
+			for (int x = 0; x < width; ++x) {
+				long value = (oldWords[y * oldWordsPerRow + x / oldCellsPerWord] >>> ((x % oldCellsPerWord) * oldBits)) & oldMask;
+				words[y * wordsPerRow + x / cellsPerWord] |= value << ((x % cellsPerWord) * bits);
+			}
+		}
+		// blank rows are already zeroed in the new words
+		rows.touchAll(height);
+		palette = Arrays.copyOf(palette, 1 << bits);
+	}
+
+	// A blank row left by a previous generation is zeroed on its first write
+	private void writeRow(int y) {
+		if (rows.touch(y)) Arrays.fill(words, y * wordsPerRow, (y + 1) * wordsPerRow, 0L);
+	}
+
+	private void setBits(int bits) {
+		this.bits = bits;
+		this.cellsPerWord = 64 / bits;
+		this.cellMask = (1L << bits) - 1;
+		this.wordsPerRow = (int) wordsPerRow(width, cellsPerWord);
+	}
+
+	private static long wordsPerRow(int width, int cellsPerWord) {
+		return (width + (long) cellsPerWord - 1) / cellsPerWord;
+	}
+}
@@ -0,0 +1,194 @@
+package com.painter.models.canvas.stores;
+
+import java.util.Arrays;
+
+import com.painter.interfaces.PixelStore;
+
+/**
+ * Region quadtree pixel store
+ * Every node covers an aligned power-of-two square and is either
+ * a uniform symbol (leaf) or split into four children.
+ * Filling an area touches O(perimeter*log n) nodes, uniform regions
+ * are reported as whole blocks to the bucket tool.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class QuadTreePixelStore implements PixelStore {
+
+	// header, symbol, children reference and children array
+	private static final long NODE_BYTES = 40;
+
+	private Node root = new Node(' ');
+	private int rootShift = 0;
+	private int width = 0;
+	private int height = 0;
+
+	@Override
+	public boolean supports(int width, int height) {
+		return true;
+	}
+
+	@Override
+	public void resize(int width, int height, char blank) {
+		this.width = width;
+		this.height = height;
+		rootShift = 0;
+		while ((1L << rootShift) < Math.max(width, height)) ++rootShift;
+		clear(blank);
+	}
+
+	@Override
+	public void clear(char blank) {
+		root = new Node(blank);
+	}
+
+	@Override
+	public String getRepresentation() {
+		return "QUAD";
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		return getNodeCount() * NODE_BYTES;
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public char get(int x, int y) {
+		return leaf(x, y).color;
+	}
+
+	@Override
+	public void set(int x, int y, char symbol) {
+		fillRect(x, y, x, y, symbol);
+	}
+
+	@Override
+	public void fillSpan(int y, int x1, int x2, char symbol) {
+		fillRect(x1, y, x2, y, symbol);
+	}
+
+	@Override
+	public void fillRect(int x1, int y1, int x2, int y2, char symbol) {
+		fill(root, 0, 0, rootShift, x1, y1, x2, y2, symbol);
+	}
+
+	@Override
+	public int uniformBlockShift(int x, int y) {
+		Node node = root;
+		int shift = rootShift;
+		while (node.children != null) {
+			--shift;
+			node = node.children[child(x, y, shift)];
+		}
+		return shift;
+	}
+
+	@Override
+	public int runEnd(int y, int x, int limit) {
+		final char symbol = get(x, y);
+		int end = x;
+		while (end < limit) {
+			int shift = uniformBlockShift(end, y);
+			if (get(end, y) != symbol) return end;
+			end = (int) Math.min(limit, ((long) (end >> shift) + 1) << shift);
+		}
+		return limit;
+	}
+
+	@Override
+	public void readRow(int y, char[] dst) {
+		int x = 0;
+		while (x < width) {
+			int shift = uniformBlockShift(x, y);
+			int end = (int) Math.min(width, ((long) (x >> shift) + 1) << shift);
+			Arrays.fill(dst, x, end, get(x, y));
+			x = end;
+		}
+	}
+
+	/**
+	 * @return number of nodes of the tree
+	 */
+	public int getNodeCount() {
+		return count(root);
+	}
+
+	private Node leaf(int x, int y) {
+		Node node = root;
+		int shift = rootShift;
+		while (node.children != null) {
+			--shift;
+			node = node.children[child(x, y, shift)];
+		}
+		return node;
+	}
+
+	private void fill(Node node, int left, int top, int shift, int x1, int y1, int x2, int y2, char symbol) {
+		if (node.children == null && node.color == symbol) return;
+		final long size = 1L << shift;
+		// the part of the node outside the area never matters
+		final long right = Math.min(left + size - 1, width - 1);
+		final long bottom = Math.min(top + size - 1, height - 1);
+		if (x1 <= left && y1 <= top && x2 >= right && y2 >= bottom) {
+			node.children = null;
+			node.color = symbol;
+			return;
+		}
+		if (node.children == null) {
+			node.children = new Node[] {new Node(node.color), new Node(node.color), new Node(node.color), new Node(node.color)};
+		}
+		final int half = 1 << (shift - 1);
+		for (int i = 0; i < 4; ++i) {
+			int childLeft = left + ((i & 1) == 0 ? 0 : half);
+			int childTop = top + ((i & 2) == 0 ? 0 : half);
+			if (childLeft > x2 || childTop > y2 || childLeft + half - 1L < x1 || childTop + half - 1L < y1) continue;
+			if (childLeft >= width || childTop >= height) continue;
+			fill(node.children[i], childLeft, childTop, shift - 1, x1, y1, x2, y2, symbol);
+		}
+		merge(node, left, top, half);
+	}
+
+	// Collapse the children when the ones inside the area are uniform with the same symbol
+	private void merge(Node node, int left, int top, int half) {
+		final char color = node.children[0].color;
+		for (int i = 0; i < 4; ++i) {
+			if (left + ((i & 1) == 0 ? 0 : half) >= width || top + ((i & 2) == 0 ? 0 : half) >= height) continue;
+			Node child = node.children[i];
+			if (child.children != null || child.color != color) return;
+		}
+		node.children = null;
+		node.color = color;
+	}
+
+	private static int child(int x, int y, int shift) {
+		return ((x >> shift) & 1) | (((y >> shift) & 1) << 1);
+	}
+
+	private static int count(Node node) {
+		int count = 1;
+		if (node.children != null) {
+			for (Node child : node.children) count += count(child);
+		}
+		return count;
+	}
+
+	private static class Node {
+		char color;
+		Node[] children = null;
+
+		Node(char color) {
+			this.color = color;
+		}
+	}
+}
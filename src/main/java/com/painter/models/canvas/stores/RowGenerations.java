@@ -0,0 +1,64 @@
+package com.painter.models.canvas.stores;
+
+import java.util.Arrays;
+
+/**
+ * Generation stamps of the rows of a store
+ * A row holds its pixels only if it was written since the last clear,
+ * otherwise it is blank: clearing the store just moves to the next generation
+ * and a row is blanked lazily on its first write.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+class RowGenerations {
+
+	private int[] stamps = new int[0];
+	// stamps start at 0, which is never the current generation
+	private int generation = 1;
+
+	/**
+	 * Every row of the new height is blank, the stamps are reused when they fit
+	 */
+	void resize(int height) {
+		if (stamps.length < height) {
+			stamps = new int[height];
+			generation = 1;
+		} else next();
+	}
+
+	/**
+	 * Every row is blank
+	 */
+	void next() {
+		if (++generation == Integer.MAX_VALUE) {
+			Arrays.fill(stamps, 0);
+			generation = 1;
+		}
+	}
+
+	boolean isWritten(int y) {
+		return stamps[y] == generation;
+	}
+
+	/**
+	 * Mark the row as written
+	 * @return true if the row was blank and must be cleared before writing it
+	 */
+	boolean touch(int y) {
+		if (stamps[y] == generation) return false;
+		stamps[y] = generation;
+		return true;
+	}
+
+	/**
+	 * Mark the first rows as written
+	 */
+	void touchAll(int height) {
+		Arrays.fill(stamps, 0, height, generation);
+	}
+
+	long getMemoryUsage() {
+		return stamps.length * (long) Integer.BYTES;
+	}
+}
@@ -0,0 +1,182 @@
+package com.painter.models.canvas.stores;
+
+import java.util.Arrays;
+
+import com.painter.interfaces.PixelStore;
+
+/**
+ * Run-length encoded pixel store
+ * Every row is a sorted list of runs (start, symbol) where two adjacent
+ * runs never share the same symbol. A row never written is a single blank run.
+ * Memory, span writes and row reads are proportional to the number of runs.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class RunLengthPixelStore implements PixelStore {
+
+	private static final int INITIAL_RUNS = 4;
+	// header and array headers of a row
+	private static final long ROW_BYTES = 64;
+
+	private Row[] rows = new Row[0];
+	private int width = 0;
+	private int height = 0;
+	private char blank = ' ';
+
+	// scratch buffers used to rebuild a row
+	private int[] scratchStarts = new int[INITIAL_RUNS];
+	private char[] scratchSymbols = new char[INITIAL_RUNS];
+
+	@Override
+	public boolean supports(int width, int height) {
+		return true;
+	}
+
+	@Override
+	public void resize(int width, int height, char blank) {
+		this.width = width;
+		this.height = height;
+		rows = new Row[height];
+		this.blank = blank;
+	}
+
+	@Override
+	public void clear(char blank) {
+		Arrays.fill(rows, null);
+		this.blank = blank;
+	}
+
+	@Override
+	public String getRepresentation() {
+		return "RLE";
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		long bytes = rows.length * (long) Long.BYTES;
+		for (Row row : rows) {
+			if (row != null) bytes += ROW_BYTES + row.starts.length * (long) (Integer.BYTES + Character.BYTES);
+		}
+		return bytes;
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public char get(int x, int y) {
+		final Row row = rows[y];
+		if (row == null) return blank;
+		return row.symbols[row.find(x)];
+	}
+
+	@Override
+	public void set(int x, int y, char symbol) {
+		fillSpan(y, x, x, symbol);
+	}
+
+	@Override
+	public void fillSpan(int y, int x1, int x2, char symbol) {
+		Row row = rows[y];
+		if (row == null) {
+			if (symbol == blank) return;
+			row = rows[y] = new Row(blank);
+		}
+		final int first = row.find(x1);
+		final int last = row.find(x2);
+		if (first == last && row.symbols[first] == symbol) return;
+		ensureScratch(row.count + 2);
+		int count = 0;
+		for (int i = 0; i < first; ++i) count = append(count, row.starts[i], row.symbols[i]);
+		if (row.starts[first] < x1) count = append(count, row.starts[first], row.symbols[first]);
+		count = append(count, x1, symbol);
+		if (x2 + 1 < row.end(last, width)) count = append(count, x2 + 1, row.symbols[last]);
+		for (int i = last + 1; i < row.count; ++i) count = append(count, row.starts[i], row.symbols[i]);
+		row.copyFrom(scratchStarts, scratchSymbols, count);
+		if (count == 1 && row.symbols[0] == blank) rows[y] = null;
+	}
+
+	@Override
+	public int runEnd(int y, int x, int limit) {
+		final Row row = rows[y];
+		if (row == null) return limit;
+		return Math.min(limit, row.end(row.find(x), width));
+	}
+
+	@Override
+	public void readRow(int y, char[] dst) {
+		final Row row = rows[y];
+		if (row == null) {
+			Arrays.fill(dst, 0, width, blank);
+			return;
+		}
+		for (int i = 0; i < row.count; ++i) Arrays.fill(dst, row.starts[i], row.end(i, width), row.symbols[i]);
+	}
+
+	/**
+	 * @return total number of runs
+	 */
+	public long getRunCount() {
+		long count = 0;
+		for (Row row : rows) count += row == null ? 1 : row.count;
+		return count;
+	}
+
+	// Append a run merging it with the previous one when the symbol is the same
+	private int append(int count, int start, char symbol) {
+		if (count > 0 && scratchSymbols[count - 1] == symbol) return count;
+		scratchStarts[count] = start;
+		scratchSymbols[count] = symbol;
+		return count + 1;
+	}
+
+	private void ensureScratch(int size) {
+		if (scratchStarts.length >= size) return;
+		scratchStarts = new int[size * 2];
+		scratchSymbols = new char[size * 2];
+	}
+
+	private static class Row {
+		int[] starts = new int[INITIAL_RUNS];
+		char[] symbols = new char[INITIAL_RUNS];
+		int count = 1;
+
+		Row(char blank) {
+			symbols[0] = blank;
+		}
+
+		// Index of the run holding x
+		int find(int x) {
+			int low = 0;
+			int high = count - 1;
+			while (low < high) {
+				int middle = (low + high + 1) >>> 1;
+				if (starts[middle] <= x) low = middle;
+				else high = middle - 1;
+			}
+			return low;
+		}
+
+		int end(int run, int width) {
+			return run + 1 < count ? starts[run + 1] : width;
+		}
+
+		void copyFrom(int[] newStarts, char[] newSymbols, int newCount) {
+			if (starts.length < newCount) {
+				starts = new int[newCount * 2];
+				symbols = new char[newCount * 2];
+			}
+			System.arraycopy(newStarts, 0, starts, 0, newCount);
+			System.arraycopy(newSymbols, 0, symbols, 0, newCount);
+			count = newCount;
+		}
+	}
+}
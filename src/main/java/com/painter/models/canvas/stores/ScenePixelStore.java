@@ -0,0 +1,221 @@
+package com.painter.models.canvas.stores;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.painter.interfaces.PixelStore;
+import com.painter.utilities.IntList;
+
+/**
+ * Retained scene pixel store
+ * Writes are recorded as rectangles (x1, y1, x2, y2, symbol) in order,
+ * nothing is rasterized: a pixel is the symbol of the last rectangle
+ * covering it, blank otherwise.
+ * Rectangles are indexed by bands of 64 rows, so a row is rendered from
+ * the rectangles of its band only and no more than one row is ever held.
+ * Empty aligned blocks are reported as uniform, so a bucket fill of an
+ * empty area is recorded as a few large rectangles.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class ScenePixelStore implements PixelStore {
+
+	private static final int BAND_SHIFT = 6;
+	private static final int MAX_BLOCK_SHIFT = 10;
+	private static final int FIELDS = 5;
+
+	// x1, y1, x2, y2, symbol of every rectangle, in recording order
+	private final IntList shapes = new IntList();
+	// band -> rectangles crossing it, in recording order
+	private final Map<Integer, IntList> bands = new HashMap<>();
+	private long indexEntries = 0;
+	private int width = 0;
+	private int height = 0;
+	private char blank = ' ';
+
+	@Override
+	public boolean supports(int width, int height) {
+		return width > 0 && height > 0;
+	}
+
+	@Override
+	public void resize(int width, int height, char blank) {
+		this.width = width;
+		this.height = height;
+		clear(blank);
+	}
+
+	@Override
+	public void clear(char blank) {
+		this.blank = blank;
+		shapes.clear();
+		bands.clear();
+		indexEntries = 0;
+	}
+
+	@Override
+	public String getRepresentation() {
+		return "SCENE";
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		return (shapes.size() + indexEntries) * Integer.BYTES;
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public char get(int x, int y) {
+		final IntList band = bands.get(y >> BAND_SHIFT);
+		if (band == null) return blank;
+		for (int i = band.size() - 1; i >= 0; --i) {
+			final int shape = band.get(i) * FIELDS;
+			if (covers(shape, x, y)) return (char) shapes.get(shape + 4);
+		}
+		return blank;
+	}
+
+	@Override
+	public void set(int x, int y, char symbol) {
+		record(x, y, x, y, symbol);
+	}
+
+	@Override
+	public void fillSpan(int y, int x1, int x2, char symbol) {
+		record(x1, y, x2, y, symbol);
+	}
+
+	@Override
+	public void fillRect(int x1, int y1, int x2, int y2, char symbol) {
+		record(x1, y1, x2, y2, symbol);
+	}
+
+	@Override
+	public int uniformBlockShift(int x, int y) {
+		for (int shift = MAX_BLOCK_SHIFT; shift >= BAND_SHIFT; --shift) {
+			final int x1 = (x >> shift) << shift;
+			final int y1 = (y >> shift) << shift;
+			if (isEmpty(x1, y1, (int) Math.min(x1 + (1L << shift) - 1, width - 1), (int) Math.min(y1 + (1L << shift) - 1, height - 1))) return shift;
+		}
+		return 0;
+	}
+
+	@Override
+	public int runEnd(int y, int x, int limit) {
+		final IntList band = bands.get(y >> BAND_SHIFT);
+		if (band == null) return limit;
+		// the row only changes on the edges of its rectangles: x and the edges after it
+		final int[] edges = new int[2 * band.size() + 1];
+		int count = 0;
+		edges[count++] = x;
+		for (int i = 0; i < band.size(); ++i) {
+			final int shape = band.get(i) * FIELDS;
+			if (y < shapes.get(shape + 1) || y > shapes.get(shape + 3)) continue;
+			final int start = shapes.get(shape);
+			final int after = shapes.get(shape + 2) + 1;
+			if (start > x && start < limit) edges[count++] = start;
+			if (after > x && after < limit) edges[count++] = after;
+		}
+		Arrays.sort(edges, 0, count);
+		// one backward pass: the newest rectangle covering an edge gives its symbol
+		final char[] symbols = new char[count];
+		final int[] next = new int[count + 1];
+		for (int i = 0; i <= count; ++i) next[i] = i;
+		for (int i = band.size() - 1; i >= 0; --i) {
+			final int shape = band.get(i) * FIELDS;
+			if (y < shapes.get(shape + 1) || y > shapes.get(shape + 3)) continue;
+			final int to = shapes.get(shape + 2);
+			int e = unresolved(next, lowerBound(edges, count, shapes.get(shape)));
+			while (e < count && edges[e] <= to) {
+				symbols[e] = (char) shapes.get(shape + 4);
+				next[e] = e + 1;
+				e = unresolved(next, e + 1);
+			}
+		}
+		for (int e = unresolved(next, 0); e < count; e = unresolved(next, e + 1)) symbols[e] = blank;
+		for (int e = 1; e < count; ++e) {
+			if (symbols[e] != symbols[0]) return edges[e];
+		}
+		return limit;
+	}
+
+	@Override
+	public void readRow(int y, char[] dst) {
+		Arrays.fill(dst, 0, width, blank);
+		final IntList band = bands.get(y >> BAND_SHIFT);
+		if (band == null) return;
+		for (int i = 0; i < band.size(); ++i) {
+			final int shape = band.get(i) * FIELDS;
+			if (y < shapes.get(shape + 1) || y > shapes.get(shape + 3)) continue;
+			Arrays.fill(dst, shapes.get(shape), shapes.get(shape + 2) + 1, (char) shapes.get(shape + 4));
+		}
+	}
+
+	/**
+	 * @return number of recorded rectangles
+	 */
+	public int getShapeCount() {
+		return shapes.size() / FIELDS;
+	}
+
+	private void record(int x1, int y1, int x2, int y2, char symbol) {
+		final int id = getShapeCount();
+		shapes.add(x1);
+		shapes.add(y1);
+		shapes.add(x2);
+		shapes.add(y2);
+		shapes.add(symbol);
+		for (int band = y1 >> BAND_SHIFT; band <= y2 >> BAND_SHIFT; ++band) {
+			bands.computeIfAbsent(band, (key) -> new IntList()).add(id);
+			++indexEntries;
+		}
+	}
+
+	// First edge not yet given a symbol from i, with path halving
+	private static int unresolved(int[] next, int i) {
+		while (next[i] != i) {
+			next[i] = next[next[i]];
+			i = next[i];
+		}
+		return i;
+	}
+
+	private static int lowerBound(int[] sorted, int count, int value) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (sorted[mid] < value) low = mid + 1;
+			else high = mid;
+		}
+		return low;
+	}
+
+	private boolean covers(int shape, int x, int y) {
+		return x >= shapes.get(shape) && x <= shapes.get(shape + 2) && y >= shapes.get(shape + 1) && y <= shapes.get(shape + 3);
+	}
+
+	// Check that no rectangle crosses the area
+	private boolean isEmpty(int x1, int y1, int x2, int y2) {
+		for (int b = y1 >> BAND_SHIFT; b <= y2 >> BAND_SHIFT; ++b) {
+			final IntList band = bands.get(b);
+			if (band == null) continue;
+			for (int i = 0; i < band.size(); ++i) {
+				final int shape = band.get(i) * FIELDS;
+				if (shapes.get(shape) <= x2 && shapes.get(shape + 2) >= x1 && shapes.get(shape + 1) <= y2 && shapes.get(shape + 3) >= y1) return false;
+			}
+		}
+		return true;
+	}
+}
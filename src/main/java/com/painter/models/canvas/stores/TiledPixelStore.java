@@ -0,0 +1,190 @@
+package com.painter.models.canvas.stores;
+
+import java.util.Arrays;
+
+import com.painter.interfaces.PixelStore;
+
+/**
+ * Sparse pixel store made of 64x64 tiles
+ * A tile is kept as a single symbol while it is uniform and its pixels
+ * are allocated only when one of them diverges.
+ * Filling and reading a uniform tile costs O(1) per tile (per row when reading).
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class TiledPixelStore implements PixelStore {
+
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	private static final int TILE_SHIFT = 6;
+	private static final int TILE_SIZE = 1 << TILE_SHIFT;
+	private static final int TILE_MASK = TILE_SIZE - 1;
+
+	private char[][] tiles = new char[0][];
+	private char[] uniform = new char[0];
+	private int tilesX = 0;
+	private int width = 0;
+	private int height = 0;
+
+	@Override
+	public boolean supports(int width, int height) {
+		return tiles(width) * tiles(height) <= MAX_ARRAY_SIZE;
+	}
+
+	@Override
+	public void resize(int width, int height, char blank) {
+		this.width = width;
+		this.height = height;
+		this.tilesX = (int) tiles(width);
+		final int count = (int) (tilesX * tiles(height));
+		tiles = new char[count][];
+		uniform = new char[count];
+		Arrays.fill(uniform, blank);
+	}
+
+	@Override
+	public void clear(char blank) {
+		Arrays.fill(tiles, null);
+		Arrays.fill(uniform, blank);
+	}
+
+	@Override
+	public String getRepresentation() {
+		return "TILED";
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		return tiles.length * (long) (Long.BYTES + Character.BYTES) + getMaterializedTiles() * (long) (TILE_SIZE * TILE_SIZE * Character.BYTES);
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public char get(int x, int y) {
+		final int t = tile(x, y);
+		final char[] pixels = tiles[t];
+		if (pixels == null) return uniform[t];
+		return pixels[((y & TILE_MASK) << TILE_SHIFT) | (x & TILE_MASK)];
+	}
+
+	@Override
+	public void set(int x, int y, char symbol) {
+		final int t = tile(x, y);
+		if (tiles[t] == null && uniform[t] == symbol) return;
+		materialize(t)[((y & TILE_MASK) << TILE_SHIFT) | (x & TILE_MASK)] = symbol;
+	}
+
+	@Override
+	public void fillSpan(int y, int x1, int x2, char symbol) {
+		final int rowOffset = (y & TILE_MASK) << TILE_SHIFT;
+		int x = x1;
+		while (x <= x2) {
+			final int t = tile(x, y);
+			final int end = Math.min(x2, x | TILE_MASK);
+			if (tiles[t] != null || uniform[t] != symbol) {
+				Arrays.fill(materialize(t), rowOffset | (x & TILE_MASK), rowOffset + (end & TILE_MASK) + 1, symbol);
+			}
+			x = end + 1;
+		}
+	}
+
+	@Override
+	public void fillRect(int x1, int y1, int x2, int y2, char symbol) {
+		for (int ty = y1 >> TILE_SHIFT; ty <= y2 >> TILE_SHIFT; ++ty) {
+			final int top = Math.max(y1, ty << TILE_SHIFT);
+			final int bottom = Math.min(y2, (ty << TILE_SHIFT) | TILE_MASK);
+			for (int tx = x1 >> TILE_SHIFT; tx <= x2 >> TILE_SHIFT; ++tx) {
+				final int left = Math.max(x1, tx << TILE_SHIFT);
+				final int right = Math.min(x2, (tx << TILE_SHIFT) | TILE_MASK);
+				if (coversTile(left, top, right, bottom)) {
+					final int t = ty * tilesX + tx;
+					tiles[t] = null;
+					uniform[t] = symbol;
+				} else {
+					for (int y = top; y <= bottom; ++y) fillSpan(y, left, right, symbol);
+				}
+			}
+		}
+	}
+
+	@Override
+	public int uniformBlockShift(int x, int y) {
+		return tiles[tile(x, y)] == null ? TILE_SHIFT : 0;
+	}
+
+	@Override
+	public int runEnd(int y, int x, int limit) {
+		final char symbol = get(x, y);
+		final int rowOffset = (y & TILE_MASK) << TILE_SHIFT;
+		int end = x;
+		while (end < limit) {
+			final int t = tile(end, y);
+			final int tileEnd = Math.min(limit, (end | TILE_MASK) + 1);
+			final char[] pixels = tiles[t];
+			if (pixels == null) {
+				if (uniform[t] != symbol) return end;
+				end = tileEnd;
+			} else {
+				for (; end < tileEnd; ++end) {
+					if (pixels[rowOffset | (end & TILE_MASK)] != symbol) return end;
+				}
+			}
+		}
+		return limit;
+	}
+
+	@Override
+	public void readRow(int y, char[] dst) {
+		final int rowOffset = (y & TILE_MASK) << TILE_SHIFT;
+		for (int x = 0; x < width; x += TILE_SIZE) {
+			final int t = tile(x, y);
+			final int length = Math.min(TILE_SIZE, width - x);
+			final char[] pixels = tiles[t];
+			if (pixels == null) Arrays.fill(dst, x, x + length, uniform[t]);
+			else System.arraycopy(pixels, rowOffset, dst, x, length);
+		}
+	}
+
+	/**
+	 * @return number of tiles holding their own pixels
+	 */
+	public int getMaterializedTiles() {
+		int count = 0;
+		for (char[] pixels : tiles) {
+			if (pixels != null) ++count;
+		}
+		return count;
+	}
+
+	private int tile(int x, int y) {
+		return (y >> TILE_SHIFT) * tilesX + (x >> TILE_SHIFT);
+	}
+
+	private char[] materialize(int t) {
+		if (tiles[t] == null) {
+			tiles[t] = new char[TILE_SIZE * TILE_SIZE];
+			Arrays.fill(tiles[t], uniform[t]);
+		}
+		return tiles[t];
+	}
+
+	// A tile is covered when the area reaches its edges or the edges of the store
+	private boolean coversTile(int left, int top, int right, int bottom) {
+		return (left & TILE_MASK) == 0 && (top & TILE_MASK) == 0
+				&& ((right & TILE_MASK) == TILE_MASK || right == width - 1)
+				&& ((bottom & TILE_MASK) == TILE_MASK || bottom == height - 1);
+	}
+
+	private static long tiles(int dim) {
+		return ((long) dim + TILE_MASK) >> TILE_SHIFT;
+	}
+}
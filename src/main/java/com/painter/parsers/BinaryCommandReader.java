@@ -0,0 +1,108 @@
+package com.painter.parsers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import com.painter.exceptions.parsers.MalformedCommandException;
+
+/**
+ * Reader of binary commands
+ * Every command is framed as:
+ * - opcode: one byte, the command letter
+ * - numeric arguments: unsigned varints (7 bits per byte, low bits first)
+ * - symbolic arguments: one byte, a symbol of the text grammar
+ * - nested command: its opcode byte followed by its own arguments
+ * following the signature of the command in the grammar of the lexer.
+ * The channel is read in large batches into one reusable buffer and
+ * commands are decoded into a CommandRecord, no object is created.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class BinaryCommandReader {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int VARINT_SHIFT = 7;
+	private static final int VARINT_PAYLOAD = 0x7F;
+	private static final int VARINT_MORE = 0x80;
+	private static final int MAX_VARINT_BYTES = 5;
+	private static final int END_OF_STREAM = -1;
+
+	private final ReadableByteChannel channel;
+	private final CommandLexer grammar;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private boolean endOfStream = false;
+
+	public BinaryCommandReader(ReadableByteChannel channel, CommandLexer grammar) throws NullPointerException {
+		if (channel == null || grammar == null) throw new NullPointerException();
+		this.channel = channel;
+		this.grammar = grammar;
+		buffer.flip();
+	}
+
+	/**
+	 * Decode the next command
+	 * 
+	 * @param record - Filled with the decoded command
+	 * @return false at the end of the stream
+	 * @throws IOException
+	 * @throws MalformedCommandException - unknown opcode, truncated command, number too large or invalid symbol
+	 */
+	public boolean next(CommandRecord record) throws IOException, MalformedCommandException {
+		final int opcode = read();
+		if (opcode == END_OF_STREAM) return false;
+		final char[] signature = CommandLexer.isCommand((char) opcode) ? grammar.signature((char) opcode) : CommandLexer.UNKNOWN;
+		// commands matched by pattern have no fixed framing
+		if (signature == null || signature == CommandLexer.UNKNOWN) throw new MalformedCommandException("opcode " + opcode);
+		record.reset((char) opcode);
+		readArguments(signature, record);
+		return true;
+	}
+
+	private void readArguments(char[] signature, CommandRecord record) throws IOException, MalformedCommandException {
+		for (char kind : signature) {
+			if (kind == CommandLexer.NUMBER) record.addNumber(readVarint());
+			else if (kind == CommandLexer.SYMBOL) {
+				final int symbol = readRequired();
+				if (!CommandLexer.isSymbol((char) symbol)) throw new MalformedCommandException("symbol " + symbol);
+				record.addSymbol((char) symbol);
+			} else {
+				final int nested = readRequired();
+				final char[] body = CommandLexer.isCommand((char) nested) ? grammar.signature((char) nested) : CommandLexer.UNKNOWN;
+				if (!CommandLexer.isFlat(body)) throw new MalformedCommandException("nested opcode " + nested);
+				record.addSymbol((char) nested);
+				readArguments(body, record);
+			}
+		}
+	}
+
+	private int readVarint() throws IOException, MalformedCommandException {
+		long value = 0;
+		for (int i = 0; i < MAX_VARINT_BYTES; ++i) {
+			final int b = readRequired();
+			value |= (long) (b & VARINT_PAYLOAD) << (VARINT_SHIFT * i);
+			if ((b & VARINT_MORE) == 0) {
+				if (value > Integer.MAX_VALUE) break;
+				return (int) value;
+			}
+		}
+		throw new MalformedCommandException("number too large");
+	}
+
+	private int readRequired() throws IOException, MalformedCommandException {
+		final int b = read();
+		if (b == END_OF_STREAM) throw new MalformedCommandException("truncated command");
+		return b;
+	}
+
+	private int read() throws IOException {
+		while (!buffer.hasRemaining()) {
+			if (endOfStream) return END_OF_STREAM;
+			buffer.clear();
+			endOfStream = channel.read(buffer) == END_OF_STREAM;
+			buffer.flip();
+		}
+		return buffer.get() & 0xFF;
+	}
+}
@@ -0,0 +1,61 @@
+package com.painter.parsers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writer of binary commands, see BinaryCommandReader for the framing
+ * Commands are buffered and written to the channel in large batches.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class BinaryCommandWriter {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	// opcode + symbols + varints of the largest command still fit after a flush
+	private static final int MAX_COMMAND_BYTES = 256;
+	private static final int VARINT_SHIFT = 7;
+	private static final int VARINT_PAYLOAD = 0x7F;
+	private static final int VARINT_MORE = 0x80;
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	public BinaryCommandWriter(WritableByteChannel channel) throws NullPointerException {
+		if (channel == null) throw new NullPointerException();
+		this.channel = channel;
+	}
+
+	/**
+	 * Append a command
+	 * @throws IOException
+	 */
+	public void write(CommandRecord record) throws IOException {
+		if (buffer.remaining() < MAX_COMMAND_BYTES) flush();
+		buffer.put((byte) record.getOpcode());
+		for (int i = 0; i < record.getArgCount(); ++i) {
+			if (record.isSymbol(i)) buffer.put((byte) record.getSymbol(i));
+			else writeVarint(record.getNumber(i));
+		}
+	}
+
+	/**
+	 * Write the buffered commands to the channel
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) channel.write(buffer);
+		buffer.clear();
+	}
+
+	private void writeVarint(int value) {
+		while ((value & ~VARINT_PAYLOAD) != 0) {
+			buffer.put((byte) ((value & VARINT_PAYLOAD) | VARINT_MORE));
+			value >>>= VARINT_SHIFT;
+		}
+		buffer.put((byte) value);
+	}
+}
@@ -0,0 +1,46 @@
+package com.painter.parsers;
+
+/**
+ * Window on ASCII bytes seen as characters
+ * Lets the lexer read a script line in place, without decoding it to a String.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class ByteSequence implements CharSequence {
+
+	private byte[] data = new byte[0];
+	private int offset = 0;
+	private int length = 0;
+
+	/**
+	 * Move the window
+	 */
+	public void wrap(byte[] data, int offset, int length) {
+		this.data = data;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		return (char) (data[offset + index] & 0xFF);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return toString().substring(start, end);
+	}
+
+	@Override
+	public String toString() {
+		final char[] chars = new char[length];
+		for (int i = 0; i < length; ++i) chars[i] = charAt(i);
+		return new String(chars);
+	}
+}
@@ -0,0 +1,78 @@
+package com.painter.parsers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reader of script lines from a channel
+ * The channel is read in large blocks into one reusable buffer and every
+ * block is handed out as a chunk of whole lines: the part of a line cut by
+ * the end of the block is moved to the front of the buffer for the next one.
+ * The buffer grows only for a line longer than the whole buffer.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class ChannelLineReader {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+	private static final byte NEW_LINE = '\n';
+	private static final int END_OF_STREAM = -1;
+
+	private final ReadableByteChannel channel;
+	private ByteBuffer buffer;
+	private boolean endOfStream = false;
+	private long nextLine = 1;
+
+	public ChannelLineReader(ReadableByteChannel channel) throws NullPointerException {
+		this(channel, BUFFER_SIZE);
+	}
+
+	/**
+	 * @param bufferSize - Bytes read at once
+	 */
+	public ChannelLineReader(ReadableByteChannel channel, int bufferSize) throws NullPointerException {
+		if (channel == null) throw new NullPointerException();
+		if (bufferSize <= 0) throw new IllegalArgumentException();
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocate(bufferSize);
+		buffer.flip();
+	}
+
+	/**
+	 * Read the next block of lines, the previous chunk is no longer valid
+	 * 
+	 * @param chunk - Filled with the lines
+	 * @return false at the end of the stream
+	 * @throws IOException
+	 */
+	public boolean next(ScriptChunk chunk) throws IOException {
+		buffer.compact();
+		while (true) {
+			while (buffer.hasRemaining() && !endOfStream) endOfStream = channel.read(buffer) == END_OF_STREAM;
+			final int length = buffer.position();
+			final int end = endOfStream ? length : afterLastLine(buffer.array(), length);
+			if (end > 0) {
+				buffer.flip();
+				buffer.position(end);
+				chunk.split(buffer.array(), end, nextLine);
+				nextLine += chunk.getLineCount();
+				return true;
+			}
+			if (endOfStream) {
+				buffer.flip();
+				return false;
+			}
+			// a line longer than the buffer
+			buffer.flip();
+			buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer);
+		}
+	}
+
+	// Index after the last new line, 0 if there is none
+	private static int afterLastLine(byte[] data, int length) {
+		for (int i = length - 1; i >= 0; --i) if (data[i] == NEW_LINE) return i + 1;
+		return 0;
+	}
+}
@@ -0,0 +1,114 @@
+package com.painter.parsers;
+
+import com.painter.utilities.IntList;
+
+/**
+ * Decoded commands of consecutive script lines, in flat int lists
+ * Blank and invalid lines are kept so the position of every line is known.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class CommandBatch {
+
+	private static final int BLANK = -1;
+	private static final int INVALID = 0;
+	private static final int NUMBER = 0;
+	private static final int SYMBOL = 1;
+
+	private final IntList opcodes = new IntList();
+	// end (exclusive) of the arguments of every command
+	private final IntList ends = new IntList();
+	private final IntList args = new IntList();
+	private final IntList kinds = new IntList();
+
+	public void clear() {
+		opcodes.clear();
+		ends.clear();
+		args.clear();
+		kinds.clear();
+	}
+
+	public void add(CommandRecord record) {
+		opcodes.add(record.getOpcode());
+		for (int i = 0; i < record.getArgCount(); ++i) {
+			args.add(record.getNumber(i));
+			kinds.add(record.isSymbol(i) ? SYMBOL : NUMBER);
+		}
+		ends.add(args.size());
+	}
+
+	public void addInvalid() {
+		opcodes.add(INVALID);
+		ends.add(args.size());
+	}
+
+	public void addBlank() {
+		opcodes.add(BLANK);
+		ends.add(args.size());
+	}
+
+	/**
+	 * Append the commands of another batch
+	 */
+	public void addAll(CommandBatch other) {
+		final int base = args.size();
+		for (int i = 0; i < other.size(); ++i) {
+			opcodes.add(other.opcodes.get(i));
+			ends.add(base + other.ends.get(i));
+		}
+		for (int arg = 0; arg < other.args.size(); ++arg) {
+			args.add(other.args.get(arg));
+			kinds.add(other.kinds.get(arg));
+		}
+	}
+
+	/**
+	 * The command i is no longer run, its line is kept as blank
+	 */
+	public void drop(int i) {
+		opcodes.set(i, BLANK);
+	}
+
+	public int size() {
+		return opcodes.size();
+	}
+
+	public boolean isBlank(int i) {
+		return opcodes.get(i) == BLANK;
+	}
+
+	public boolean isValid(int i) {
+		return opcodes.get(i) > INVALID;
+	}
+
+	public char getOpcode(int i) {
+		return (char) opcodes.get(i);
+	}
+
+	public int getArgCount(int i) {
+		return ends.get(i) - start(i);
+	}
+
+	/**
+	 * @return the argument arg of the command i, a symbol as its char value
+	 */
+	public int getArg(int i, int arg) {
+		return args.get(start(i) + arg);
+	}
+
+	/**
+	 * Copy the command i in the record
+	 */
+	public void load(int i, CommandRecord record) {
+		record.reset((char) opcodes.get(i));
+		for (int arg = start(i); arg < ends.get(i); ++arg) {
+			if (kinds.get(arg) == SYMBOL) record.addSymbol((char) args.get(arg));
+			else record.addNumber(args.get(arg));
+		}
+	}
+
+	private int start(int i) {
+		return i == 0 ? 0 : ends.get(i - 1);
+	}
+}
@@ -0,0 +1,215 @@
+package com.painter.parsers;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import com.painter.exceptions.factories.RuleNotSupportedException;
+import com.painter.factories.RuleFactory;
+
+/**
+ * Single-pass command lexer
+ * Validates and decodes a command line into a CommandRecord without
+ * regular expressions or intermediate strings.
+ * The grammar is the one of the RuleFactory: the rule of every command
+ * letter is decomposed, on its first use, into a signature of numeric and
+ * symbolic parameters. Rules which cannot be decomposed (custom fragments)
+ * are matched with their compiled regular expression instead.
+ * Rules added to the RuleFactory later are seen: the decomposed rules are
+ * dropped when its rules change.
+ * A nested command (the body of a loop) is decoded in the same record:
+ * its opcode as a symbol followed by its own arguments.
+ * Numbers beyond Integer.MAX_VALUE make the line invalid.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class CommandLexer {
+
+	private static final int OPCODES = 128;
+	static final char NUMBER = 'N';
+	static final char SYMBOL = 'S';
+	static final char COMMAND = 'C';
+	static final char[] UNKNOWN = new char[0];
+
+	private final RuleFactory rf;
+	private String commandFragment;
+	private String spaceFragment;
+	private String numericFragment;
+	private String symbolicFragment;
+	private String endFragment;
+	private String nestedFragment;
+	// rules of the RuleFactory the signatures come from
+	private int version;
+
+	// signature of every opcode, UNKNOWN when the opcode has no rule
+	private final char[][] signatures = new char[OPCODES][];
+	// rules that cannot be decomposed
+	private final Pattern[] patterns = new Pattern[OPCODES];
+
+	public CommandLexer(RuleFactory rf) throws NullPointerException {
+		if (rf == null) throw new NullPointerException();
+		this.rf = rf;
+		reload();
+	}
+
+	/**
+	 * Validate and decode a command line
+	 * 
+	 * @param line - Command typed by the user
+	 * @param record - Filled with the decoded command
+	 * @return true if the line is a valid command
+	 */
+	public boolean lex(CharSequence line, CommandRecord record) {
+		if (line == null || line.length() == 0) return false;
+		final char opcode = line.charAt(0);
+		if (!isCommand(opcode)) return false;
+		final char[] signature = signature(opcode);
+		if (signature == UNKNOWN) return false;
+		record.reset(opcode);
+		if (signature == null) return lexWithPattern(line, record, patterns[opcode]);
+		return lexArguments(line, 1, signature, record) == line.length();
+	}
+
+	/**
+	 * A signature of numbers and symbols only, which can be nested
+	 */
+	static boolean isFlat(char[] signature) {
+		if (signature == null || signature == UNKNOWN) return false;
+		for (char kind : signature) if (kind == COMMAND) return false;
+		return true;
+	}
+
+	// Arguments from pos, @return the position after them or -1
+	private int lexArguments(CharSequence line, int pos, char[] signature, CommandRecord record) {
+		final int n = line.length();
+		for (char kind : signature) {
+			if (pos >= n || !isSpace(line.charAt(pos))) return -1;
+			++pos;
+			if (kind == NUMBER) {
+				final int start = pos;
+				long value = 0;
+				while (pos < n && isDigit(line.charAt(pos))) {
+					value = value * 10 + (line.charAt(pos++) - '0');
+					if (value > Integer.MAX_VALUE) return -1;
+				}
+				if (pos == start) return -1;
+				record.addNumber((int) value);
+			} else if (kind == SYMBOL) {
+				if (pos >= n || !isSymbol(line.charAt(pos))) return -1;
+				record.addSymbol(line.charAt(pos++));
+			} else {
+				if (pos >= n || !isCommand(line.charAt(pos))) return -1;
+				final char nested = line.charAt(pos++);
+				final char[] body = signature(nested);
+				if (!isFlat(body)) return -1;
+				record.addSymbol(nested);
+				pos = lexArguments(line, pos, body, record);
+				if (pos < 0) return -1;
+			}
+		}
+		return pos;
+	}
+
+	// Signature of the opcode, null when its rule is matched by pattern
+	char[] signature(char opcode) {
+		if (version != rf.getVersion()) reload();
+		if (signatures[opcode] == null && patterns[opcode] == null) {
+			try {
+				final String rule = rf.getRule(String.valueOf(opcode)).toString();
+				signatures[opcode] = decompose(rule);
+				if (signatures[opcode] == null) patterns[opcode] = Pattern.compile(rule);
+			} catch (RuleNotSupportedException e) {
+				signatures[opcode] = UNKNOWN;
+			}
+		}
+		return signatures[opcode];
+	}
+
+	// COMMAND (SPACE (NUMERIC|SYMBOLIC|NESTED))* END, null for any other rule
+	private char[] decompose(String rule) {
+		if (!rule.startsWith(commandFragment)) return null;
+		final StringBuilder signature = new StringBuilder();
+		int pos = commandFragment.length();
+		while (!(rule.startsWith(endFragment, pos) && pos + endFragment.length() == rule.length())) {
+			if (!rule.startsWith(spaceFragment, pos)) return null;
+			pos += spaceFragment.length();
+			if (rule.startsWith(numericFragment, pos)) {
+				signature.append(NUMBER);
+				pos += numericFragment.length();
+			} else if (rule.startsWith(symbolicFragment, pos)) {
+				signature.append(SYMBOL);
+				pos += symbolicFragment.length();
+			} else if (rule.startsWith(nestedFragment, pos)) {
+				signature.append(COMMAND);
+				pos += nestedFragment.length();
+			} else return null;
+		}
+		return signature.toString().toCharArray();
+	}
+
+	// Custom rules: the pattern validates, the tokens are decoded by kind
+	private boolean lexWithPattern(CharSequence line, CommandRecord record, Pattern pattern) {
+		if (!pattern.matcher(line).find()) return false;
+		final int n = line.length();
+		int pos = 1;
+		while (pos < n) {
+			while (pos < n && isSpace(line.charAt(pos))) ++pos;
+			final int start = pos;
+			long value = 0;
+			boolean numeric = true;
+			while (pos < n && !isSpace(line.charAt(pos))) {
+				final char c = line.charAt(pos++);
+				numeric &= isDigit(c);
+				if (numeric) value = Math.min(value * 10 + (c - '0'), Integer.MAX_VALUE + 1L);
+			}
+			if (pos == start) break;
+			if (numeric) {
+				if (value > Integer.MAX_VALUE) return false;
+				record.addNumber((int) value);
+			} else if (pos - start == 1) record.addSymbol(line.charAt(start));
+			else return false;
+		}
+		return true;
+	}
+
+	// Fragments of the current rules, signatures decomposed again on use
+	private void reload() {
+		version = rf.getVersion();
+		commandFragment = fragment(RuleFactory.COMMAND);
+		spaceFragment = fragment(RuleFactory.SPACE);
+		numericFragment = fragment(RuleFactory.NUMERIC);
+		symbolicFragment = fragment(RuleFactory.SYMBOLIC);
+		endFragment = fragment(RuleFactory.END);
+		nestedFragment = fragment(RuleFactory.NESTED);
+		Arrays.fill(signatures, null);
+		Arrays.fill(patterns, null);
+	}
+
+	private String fragment(String key) {
+		try {
+			return rf.getRule(key).toString();
+		} catch (RuleNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// as \s
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	// as \d
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	// as [A-Z]
+	static boolean isCommand(char c) {
+		return c >= 'A' && c <= 'Z';
+	}
+
+	// as [a-z]
+	static boolean isSymbol(char c) {
+		return c >= 'a' && c <= 'z';
+	}
+}
@@ -0,0 +1,79 @@
+package com.painter.parsers;
+
+import java.util.Arrays;
+
+/**
+ * Decoded command line, reused from a line to the next one
+ * The opcode is the command letter, numeric arguments are kept as ints
+ * and symbolic arguments (colors, names) as chars, in the typed order.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class CommandRecord {
+
+	private static final int INITIAL_ARGS = 8;
+
+	private char opcode = 0;
+	private int[] args = new int[INITIAL_ARGS];
+	private boolean[] symbolic = new boolean[INITIAL_ARGS];
+	private int count = 0;
+
+	/**
+	 * Start a new command, the arguments of the previous one are dropped
+	 */
+	public void reset(char opcode) {
+		this.opcode = opcode;
+		this.count = 0;
+	}
+
+	public void addNumber(int value) {
+		add(value, false);
+	}
+
+	public void addSymbol(char symbol) {
+		add(symbol, true);
+	}
+
+	public char getOpcode() {
+		return opcode;
+	}
+
+	public int getArgCount() {
+		return count;
+	}
+
+	/**
+	 * @return the argument in position i (0 is the first argument after the opcode)
+	 */
+	public int getNumber(int i) {
+		return args[i];
+	}
+
+	public char getSymbol(int i) {
+		return (char) args[i];
+	}
+
+	public boolean isSymbol(int i) {
+		return symbolic[i];
+	}
+
+	/**
+	 * @return the command as split by spaces, opcode in position 0
+	 */
+	public String[] toParts() {
+		final String[] parts = new String[count + 1];
+		parts[0] = String.valueOf(opcode);
+		for (int i = 0; i < count; ++i) parts[i + 1] = symbolic[i] ? String.valueOf(getSymbol(i)) : String.valueOf(args[i]);
+		return parts;
+	}
+
+	private void add(int value, boolean symbol) {
+		if (count == args.length) {
+			args = Arrays.copyOf(args, count * 2);
+			symbolic = Arrays.copyOf(symbolic, count * 2);
+		}
+		args[count] = value;
+		symbolic[count++] = symbol;
+	}
+}
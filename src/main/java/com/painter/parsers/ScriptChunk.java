@@ -0,0 +1,63 @@
+package com.painter.parsers;
+
+import com.painter.utilities.IntList;
+
+/**
+ * Block of whole script lines, kept as the bytes read from the input
+ * Lines end with '\n' (a '\r' before it is dropped).
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class ScriptChunk {
+
+	private static final byte NEW_LINE = '\n';
+	private static final byte CARRIAGE_RETURN = '\r';
+
+	private byte[] data = new byte[0];
+	// start and end (exclusive) of every line
+	private final IntList bounds = new IntList();
+	private long firstLine = 1;
+
+	/**
+	 * Split the first length bytes of data in lines
+	 * @param firstLine - Number of the first line in the script
+	 */
+	void split(byte[] data, int length, long firstLine) {
+		this.data = data;
+		this.firstLine = firstLine;
+		bounds.clear();
+		int start = 0;
+		for (int i = 0; i < length; ++i) {
+			if (data[i] != NEW_LINE) continue;
+			addLine(start, i);
+			start = i + 1;
+		}
+		if (start < length) addLine(start, length);
+	}
+
+	public int getLineCount() {
+		return bounds.size() / 2;
+	}
+
+	/**
+	 * @return number of the first line in the script, starting from 1
+	 */
+	public long getFirstLine() {
+		return firstLine;
+	}
+
+	/**
+	 * Point the view to the line i of the chunk
+	 */
+	public void line(int i, ByteSequence view) {
+		final int start = bounds.get(2 * i);
+		view.wrap(data, start, bounds.get(2 * i + 1) - start);
+	}
+
+	private void addLine(int start, int end) {
+		if (end > start && data[end - 1] == CARRIAGE_RETURN) --end;
+		bounds.add(start);
+		bounds.add(end);
+	}
+}
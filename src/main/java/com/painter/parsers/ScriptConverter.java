@@ -0,0 +1,69 @@
+package com.painter.parsers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import com.painter.exceptions.parsers.MalformedCommandException;
+
+/**
+ * Converter between text scripts (one command per line) and binary scripts
+ * Invalid text lines are skipped, as the interactive painter does, and so
+ * are the commands of custom rules, which have no binary framing.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class ScriptConverter {
+
+	private static final char SEPARATOR = ' ';
+	private static final char NEW_LINE = '\n';
+
+	private final CommandLexer lexer;
+	private final CommandRecord record = new CommandRecord();
+
+	public ScriptConverter(CommandLexer lexer) throws NullPointerException {
+		if (lexer == null) throw new NullPointerException();
+		this.lexer = lexer;
+	}
+
+	/**
+	 * @return number of converted commands
+	 * @throws IOException
+	 */
+	public int toBinary(BufferedReader text, WritableByteChannel binary) throws IOException {
+		final BinaryCommandWriter writer = new BinaryCommandWriter(binary);
+		int commands = 0;
+		for (String line = text.readLine(); line != null; line = text.readLine()) {
+			if (!lexer.lex(line, record) || lexer.signature(record.getOpcode()) == null) continue;
+			writer.write(record);
+			++commands;
+		}
+		writer.flush();
+		return commands;
+	}
+
+	/**
+	 * @return number of converted commands
+	 * @throws IOException
+	 * @throws MalformedCommandException
+	 */
+	public int toText(ReadableByteChannel binary, Writer text) throws IOException, MalformedCommandException {
+		final BinaryCommandReader reader = new BinaryCommandReader(binary, lexer);
+		int commands = 0;
+		while (reader.next(record)) {
+			final String[] parts = record.toParts();
+			text.write(parts[0]);
+			for (int i = 1; i < parts.length; ++i) {
+				text.write(SEPARATOR);
+				text.write(parts[i]);
+			}
+			text.write(NEW_LINE);
+			++commands;
+		}
+		text.flush();
+		return commands;
+	}
+}
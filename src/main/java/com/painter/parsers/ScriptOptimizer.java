@@ -0,0 +1,267 @@
+package com.painter.parsers;
+
+import java.util.Arrays;
+
+import com.painter.factories.CommandFactory;
+import com.painter.models.canvas.BasicCanvas;
+import com.painter.utilities.IntList;
+
+/**
+ * Dead command elimination on a decoded script
+ * The commands of the CommandFactory only paint blank pixels (or pixels
+ * already of the same symbol), so a painted pixel never changes until the
+ * next C, and a rejected command leaves the canvas as it was.
+ * A rejected command is still reported, so only commands which cannot be
+ * rejected are dropped: strokes and fills inside the canvas, strokes only
+ * while nothing but 'x' has been painted since the C. Dropped:
+ * - everything after the first Q
+ * - commands wiped by a later C, unless a kept command sees them first:
+ *   a K (sprites survive C), a P checkpoint, a V or a Z (they depend on
+ *   the size), or a command which could be rejected by their pixels
+ * - strokes (L, R, D, F, E) repeating an earlier painted one on the same
+ *   canvas: the pixels are already painted
+ * - B seeded where an earlier B was seeded on the same canvas: the seed
+ *   is no longer blank
+ * Rejected C commands are kept and change nothing.
+ * Commands outside the default set are kept and stop the elimination.
+ * Dropped commands become blank lines, so line numbers are kept.
+ *
+ * @author Attilio Caravelli
+ *
+ */
+public class ScriptOptimizer {
+
+	// kinds of command
+	private static final int QUIT = 0;
+	private static final int RESET = 1;
+	private static final int REJECTED = 2;
+	private static final int STROKE = 3;
+	private static final int FILL = 4;
+	private static final int DRAW = 5;
+	private static final int OBSERVER = 6;
+	private static final int UNKNOWN = 7;
+	private static final int VIEW = 8;
+
+	private static final String STROKES = CommandFactory.cmdL + CommandFactory.cmdR + CommandFactory.cmdD + CommandFactory.cmdF + CommandFactory.cmdE;
+	private static final String DRAWS = CommandFactory.cmdS + CommandFactory.cmdY;
+	private static final String OBSERVERS = CommandFactory.cmdK + CommandFactory.cmdP;
+	// arguments of a loop before its body, with the body opcode
+	private static final int LOOP_HEAD = 4;
+	// B is the same fill for the same seed
+	private static final int SEED = 2;
+	private static final int INITIAL_SLOTS = 1024;
+	private static final int EMPTY = 0;
+	// color of the strokes of the CommandFactory
+	private static final char STROKE_COLOR = 'x';
+
+	private final BasicCanvas canvas;
+	// strokes and fills of the current canvas: batch index + 1, open addressing
+	private int[] slots = new int[INITIAL_SLOTS];
+	private final IntList used = new IntList();
+	private final CommandRecord record = new CommandRecord();
+
+	/**
+	 * @param canvas - Canvas the script runs on, it tells which C are rejected
+	 * @throws NullPointerException
+	 */
+	public ScriptOptimizer(BasicCanvas canvas) throws NullPointerException {
+		if (canvas == null) throw new NullPointerException();
+		this.canvas = canvas;
+	}
+
+	/**
+	 * @return number of eliminated commands
+	 */
+	public int optimize(CommandBatch batch) {
+		int eliminated = 0;
+		int end = batch.size();
+		for (int i = 0; i < batch.size() && end == batch.size(); ++i) if (batch.isValid(i) && kind(batch, i) == QUIT) end = i + 1;
+		for (int i = end; i < batch.size(); ++i) {
+			if (batch.isValid(i)) ++eliminated;
+			if (!batch.isBlank(i)) batch.drop(i);
+		}
+		final boolean[] accepted = acceptedCommands(batch, end);
+		// backwards: is the canvas wiped by a later C before anyone sees it
+		boolean wiped = false;
+		for (int i = end - 1; i >= 0; --i) {
+			if (!batch.isValid(i)) continue;
+			final int kind = kind(batch, i);
+			if (wiped && accepted[i]) {
+				batch.drop(i);
+				++eliminated;
+			}
+			// a kept command sees the pixels painted before it
+			else if (kind != RESET && kind != REJECTED && kind != QUIT) wiped = false;
+			if (kind == RESET) wiped = true;
+		}
+		// forwards: strokes and seeds repeating a painted one of the same canvas
+		clear();
+		for (int i = 0; i < end; ++i) {
+			if (!batch.isValid(i)) continue;
+			final int kind = kind(batch, i);
+			if (kind == RESET || kind == UNKNOWN) clear();
+			else if ((kind == STROKE || kind == FILL) && !insert(batch, i, kind == FILL ? keyOfFill(batch, i) : batch.getArgCount(i), accepted[i])) {
+				batch.drop(i);
+				++eliminated;
+			}
+		}
+		return eliminated;
+	}
+
+	/**
+	 * Commands which are sure to be accepted by the canvas: accepted C, and
+	 * strokes and fills inside the canvas of a known C. A stroke could still
+	 * cross a pixel of another symbol, so strokes are sure only while the
+	 * canvas holds nothing but the stroke color.
+	 */
+	private boolean[] acceptedCommands(CommandBatch batch, int end) {
+		final boolean[] accepted = new boolean[end];
+		boolean known = false;
+		boolean foreign = false;
+		int w = 0;
+		int h = 0;
+		for (int i = 0; i < end; ++i) {
+			if (!batch.isValid(i)) continue;
+			final int kind = kind(batch, i);
+			if (kind == RESET) {
+				accepted[i] = true;
+				known = true;
+				foreign = false;
+				w = batch.getArg(i, 0);
+				h = batch.getArg(i, 1);
+			} else if (kind == STROKE) accepted[i] = known && !foreign && inside(batch, i, w, h);
+			else if (kind == FILL) {
+				accepted[i] = known && inside(batch, i, w, h);
+				if (batch.getArg(i, keyOfFill(batch, i)) != STROKE_COLOR) foreign = true;
+			} else if (kind == DRAW) foreign = true;
+			else if (kind == UNKNOWN) known = false;
+		}
+		return accepted;
+	}
+
+	// Every repetition of the stroke or fill inside the w x h canvas
+	private boolean inside(CommandBatch batch, int i, int w, int h) {
+		final boolean loop = batch.getOpcode(i) == CommandFactory.cmdX.charAt(0);
+		final int base = loop ? LOOP_HEAD : 0;
+		final char opcode = loop ? (char) batch.getArg(i, LOOP_HEAD - 1) : batch.getOpcode(i);
+		final boolean fill = opcode == CommandFactory.cmdB.charAt(0);
+		if (loop && !isLoopOf(batch, i, fill)) return false;
+		final long repetitions = loop ? batch.getArg(i, 0) : 1;
+		if (repetitions == 0) return true;
+		// steps never go backwards: the first and the last repetitions bound the others
+		for (long r : new long[] {0, repetitions - 1}) {
+			final long dx = loop ? r * batch.getArg(i, 1) : 0;
+			final long dy = loop ? r * batch.getArg(i, 2) : 0;
+			final long x1 = batch.getArg(i, base) + dx;
+			final long y1 = batch.getArg(i, base + 1) + dy;
+			if (fill) {
+				if (!inside(x1, y1, w, h)) return false;
+				continue;
+			}
+			final long a = batch.getArg(i, base + 2);
+			final long b = batch.getArg(i, base + 3);
+			if (opcode == CommandFactory.cmdE.charAt(0)) {
+				if (!inside(x1 - a, y1 - b, w, h) || !inside(x1 + a, y1 + b, w, h)) return false;
+			} else {
+				if (!inside(x1, y1, w, h) || !inside(a + dx, b + dy, w, h)) return false;
+				// oblique lines are rejected
+				if (opcode == CommandFactory.cmdL.charAt(0) && x1 != a + dx && y1 != b + dy) return false;
+			}
+		}
+		return true;
+	}
+
+	// The body has the arguments of the command: numbers, and the color of a B
+	private boolean isLoopOf(CommandBatch batch, int i, boolean fill) {
+		batch.load(i, record);
+		final int args = fill ? SEED + 1 : 4;
+		if (record.getArgCount() != LOOP_HEAD + args) return false;
+		for (int arg = 0; arg < args; ++arg) if (record.isSymbol(LOOP_HEAD + arg) != (fill && arg == SEED)) return false;
+		return true;
+	}
+
+	private static boolean inside(long x, long y, int w, int h) {
+		return x >= 1 && y >= 1 && x <= w && y <= h;
+	}
+
+	private int kind(CommandBatch batch, int i) {
+		final char opcode = batch.getOpcode(i);
+		if (opcode == CommandFactory.cmdQ.charAt(0)) return QUIT;
+		if (opcode == CommandFactory.cmdC.charAt(0)) return canvas.supportsDimensions(batch.getArg(i, 0), batch.getArg(i, 1)) ? RESET : REJECTED;
+		if (opcode == CommandFactory.cmdV.charAt(0) || opcode == CommandFactory.cmdZ.charAt(0)) return VIEW;
+		if (opcode == CommandFactory.cmdX.charAt(0)) {
+			final int body = kindOfBody((char) batch.getArg(i, LOOP_HEAD - 1));
+			// loops of commands that cannot be repeated are rejected by the factory
+			return body == OBSERVER && batch.getArg(i, LOOP_HEAD - 1) != CommandFactory.cmdK.charAt(0) ? UNKNOWN : body;
+		}
+		return kindOfBody(opcode);
+	}
+
+	private static int kindOfBody(char opcode) {
+		if (opcode == CommandFactory.cmdB.charAt(0)) return FILL;
+		if (STROKES.indexOf(opcode) >= 0) return STROKE;
+		if (DRAWS.indexOf(opcode) >= 0) return DRAW;
+		if (OBSERVERS.indexOf(opcode) >= 0) return OBSERVER;
+		return UNKNOWN;
+	}
+
+	// Seed of a B, or loop head and seed of a loop of B
+	private static int keyOfFill(CommandBatch batch, int i) {
+		return batch.getOpcode(i) == CommandFactory.cmdX.charAt(0) ? LOOP_HEAD + SEED : SEED;
+	}
+
+	/**
+	 * Add the command to the painted commands of the canvas
+	 * @param length - Arguments compared
+	 * @param painted - Added only if it is sure to be painted
+	 * @return false if an equal command is there
+	 */
+	private boolean insert(CommandBatch batch, int i, int length, boolean painted) {
+		if (2 * (used.size() + 1) > slots.length) grow(batch);
+		int slot = hash(batch, i, length) & (slots.length - 1);
+		while (slots[slot] != EMPTY) {
+			final int other = slots[slot] - 1;
+			if (batch.getOpcode(other) == batch.getOpcode(i) && batch.getArgCount(other) == batch.getArgCount(i) && sameArgs(batch, other, i, length)) return false;
+			slot = (slot + 1) & (slots.length - 1);
+		}
+		if (!painted) return true;
+		slots[slot] = i + 1;
+		used.add(slot);
+		return true;
+	}
+
+	private void grow(CommandBatch batch) {
+		final int[] old = slots;
+		slots = new int[old.length * 2];
+		used.clear();
+		for (int entry : old) {
+			if (entry == EMPTY) continue;
+			final int i = entry - 1;
+			int slot = hash(batch, i, length(batch, i)) & (slots.length - 1);
+			while (slots[slot] != EMPTY) slot = (slot + 1) & (slots.length - 1);
+			slots[slot] = entry;
+			used.add(slot);
+		}
+	}
+
+	private int length(CommandBatch batch, int i) {
+		return kind(batch, i) == FILL ? keyOfFill(batch, i) : batch.getArgCount(i);
+	}
+
+	private void clear() {
+		if (used.size() > slots.length / 8) Arrays.fill(slots, EMPTY);
+		else for (int i = 0; i < used.size(); ++i) slots[used.get(i)] = EMPTY;
+		used.clear();
+	}
+
+	private static int hash(CommandBatch batch, int i, int length) {
+		int hash = batch.getOpcode(i);
+		for (int arg = 0; arg < length; ++arg) hash = 31 * hash + batch.getArg(i, arg);
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean sameArgs(CommandBatch batch, int i, int j, int length) {
+		for (int arg = 0; arg < length; ++arg) if (batch.getArg(i, arg) != batch.getArg(j, arg)) return false;
+		return true;
+	}
+}
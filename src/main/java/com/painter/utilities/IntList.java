@@ -0,0 +1,38 @@
+package com.painter.utilities;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints
+ * 
+ * @author Attilio Caravelli
+ *
+ */
+public class IntList {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int[] values = new int[INITIAL_CAPACITY];
+	private int size = 0;
+
+	public void add(int value) {
+		if (size == values.length) values = Arrays.copyOf(values, size * 2);
+		values[size++] = value;
+	}
+
+	public int get(int index) {
+		return values[index];
+	}
+
+	public void set(int index, int value) {
+		values[index] = value;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+}
@@ -0,0 +1,34 @@
+package com.painter.utilities;
+
+import java.util.Arrays;
+
+/**
+ * Growable stack of primitive ints
+ * 
+ * @author Attilio Caravelli
+ *
+ */
+public class IntStack {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private int[] values = new int[INITIAL_CAPACITY];
+	private int size = 0;
+
+	public void push(int value) {
+		if (size == values.length) values = Arrays.copyOf(values, size * 2);
+		values[size++] = value;
+	}
+
+	public int pop() {
+		return values[--size];
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+}
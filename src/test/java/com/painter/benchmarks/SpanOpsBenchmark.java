@@ -0,0 +1,51 @@
+/**
+ * Micro benchmark of the span operations
+ * Run after mvn -Pvector test-compile with:
+ * java --add-modules jdk.incubator.vector -cp target/classes:target/test-classes com.painter.benchmarks.SpanOpsBenchmark
+ * 
+ * @author Attilio Caravelli
+ *
+ */
+package com.painter.benchmarks;
+
+import java.util.Arrays;
+
+import com.painter.interfaces.SpanOps;
+import com.painter.models.canvas.spans.ScalarSpanOps;
+import com.painter.models.canvas.spans.SpanOpsLoader;
+
+public class SpanOpsBenchmark {
+
+	private static final int ROW = 4096;
+	private static final int ROUNDS = 20000;
+	private static final int WARMUP_ROUNDS = 5;
+
+	public static void main(String[] args) {
+		SpanOps scalar = new ScalarSpanOps();
+		SpanOps loaded = SpanOpsLoader.get();
+		System.out.println("loaded: " + loaded.getClass().getSimpleName());
+		for (int i = 0; i < WARMUP_ROUNDS; ++i) {
+			run(scalar);
+			run(loaded);
+		}
+		long scalarTime = run(scalar);
+		long loadedTime = run(loaded);
+		System.out.printf("scalar %d ms, loaded %d ms, speedup %.2fx%n", scalarTime / 1000000, loadedTime / 1000000, (double) scalarTime / loadedTime);
+	}
+
+	// Fill then look for the end of the run, as a line check and a span write do
+	private static long run(SpanOps ops) {
+		final char[] row = new char[ROW];
+		Arrays.fill(row, ' ');
+		row[ROW - 1] = 'x';
+		long checksum = 0;
+		final long start = System.nanoTime();
+		for (int i = 0; i < ROUNDS; ++i) {
+			checksum += ops.mismatch(row, i & 7, ROW, ' ');
+			ops.fill(row, i & 7, ROW - 1, ' ');
+		}
+		final long elapsed = System.nanoTime() - start;
+		if (checksum == 42) System.out.println();
+		return elapsed;
+	}
+}
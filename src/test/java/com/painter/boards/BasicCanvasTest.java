@@ -8,7 +8,11 @@ package com.painter.boards;
 import static org.junit.Assert.*;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.channels.Channels;
+import java.util.Random;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -44,6 +48,182 @@ public class BasicCanvasTest {
 		assertEquals(expected, out.toString());
 	}
 	
+	@Test
+	public void streamedPrintTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException, IOException {
+		// rows and templates wider than the buffer, non ASCII symbols
+		canvas.setNewDimensions(70000, 3);
+		canvas.drawRectangle(1, 2, 70000, 2, 'x');
+		canvas.setElementAt(35000, 3, '\u00e8');
+		canvas.setElementAt(70000, 3, '\u20ac');
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		canvas.print(new PrintStream(out));
+		assertEquals(canvas.toString(), out.toString("UTF-8"));
+		out.reset();
+		canvas.render(Channels.newChannel(out));
+		assertEquals(canvas.toString(), out.toString("UTF-8"));
+		canvas.setNewDimensions(4, 2);
+		out.reset();
+		canvas.render(Channels.newChannel(out));
+		assertEquals("------\n|    |\n|    |\n------\n", out.toString("UTF-8"));
+	}
+	
+	@Test
+	public void printChangesTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException, UnsupportedEncodingException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PrintStream ps = new PrintStream(out);
+		canvas.setNewDimensions(20, 4);
+		// first print: whole canvas
+		canvas.printChanges(ps);
+		String clear = "\u001B[H\u001B[2J";
+		assertEquals(clear + canvas.toString(), out.toString("UTF-8"));
+		out.reset();
+		canvas.drawRectangle(2, 2, 4, 3, 'x');
+		canvas.setElementAt(20, 4, 'o');
+		canvas.printChanges(ps);
+		assertEquals("\u001B[3;3Hxxx\u001B[4;3Hxxx\u001B[5;21Ho\u001B[7;1H\u001B[J", out.toString("UTF-8"));
+		// nothing changed
+		out.reset();
+		canvas.printChanges(ps);
+		assertEquals("\u001B[7;1H\u001B[J", out.toString("UTF-8"));
+		// large changes and new sizes repaint
+		out.reset();
+		canvas.bucketTool(1, 1, 'c');
+		canvas.printChanges(ps);
+		assertEquals(clear + canvas.toString(), out.toString("UTF-8"));
+		out.reset();
+		canvas.setNewDimensions(3, 1);
+		canvas.printChanges(ps);
+		assertEquals(clear + "-----\n|   |\n-----\n", out.toString("UTF-8"));
+	}
+	
+	@Test
+	public void viewportTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException, UnsupportedEncodingException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PrintStream ps = new PrintStream(out);
+		canvas.setNewDimensions(10, 5);
+		canvas.drawRectangle(2, 2, 6, 4, 'x');
+		canvas.setViewport(5, 3, 4, 2);
+		canvas.print(ps);
+		assertEquals("------\n| x  |\n|xx  |\n------\n", out.toString("UTF-8"));
+		// clipped to the canvas
+		out.reset();
+		canvas.setViewport(8, 4, 100, 100);
+		canvas.print(ps);
+		assertEquals("-----\n|   |\n|   |\n-----\n", out.toString("UTF-8"));
+		out.reset();
+		canvas.setNewDimensions(3, 2);
+		canvas.print(ps);
+		assertEquals("---\n| |\n---\n", out.toString("UTF-8"));
+		// incremental printing inside the window only
+		canvas.setNewDimensions(10, 5);
+		canvas.setViewport(3, 2, 3, 3);
+		canvas.printChanges(ps);
+		out.reset();
+		canvas.setElementAt(4, 3, 'o');
+		canvas.setElementAt(9, 3, 'o');
+		canvas.printChanges(ps);
+		// the dirty span of the row is clipped to the window
+		assertEquals("\u001B[3;3Ho \u001B[6;1H\u001B[J", out.toString("UTF-8"));
+		canvas.clearViewport();
+		out.reset();
+		canvas.print(ps);
+		assertEquals(canvas.toString(), out.toString("UTF-8"));
+		assertEquals("|   o    o |\n", canvas.toString().split("(?<=\n)")[3]);
+	}
+	
+	@Test
+	public void edgeCasesViewportTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException {
+		canvas.setNewDimensions(10, 5);
+		try {
+			canvas.setViewport(3, 2, 0, 3);
+			fail();
+		} catch (CanvasDimensionNotSupportedException e) {}
+		exception.expect(CanvasOutOfBordersException.class);
+		canvas.setViewport(11, 2, 3, 3);
+	}
+	
+	@Test
+	public void previewTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException, UnsupportedEncodingException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PrintStream ps = new PrintStream(out);
+		canvas.setNewDimensions(6, 3);
+		canvas.drawRectangle(1, 1, 4, 2, 'x');
+		canvas.setPreviewLevel(1);
+		canvas.print(ps);
+		assertEquals("-----\n|xx |\n|   |\n-----\n", out.toString("UTF-8"));
+		// no main symbol in the block
+		out.reset();
+		canvas.setPreviewLevel(2);
+		canvas.print(ps);
+		assertEquals("----\n|# |\n----\n", out.toString("UTF-8"));
+		// kept up to date with the changes
+		out.reset();
+		canvas.setElementAt(5, 1, 'o');
+		canvas.setElementAt(6, 1, 'o');
+		canvas.setPreviewLevel(1);
+		canvas.print(ps);
+		assertEquals("-----\n|xx#|\n|   |\n-----\n", out.toString("UTF-8"));
+		out.reset();
+		canvas.setElementAt(5, 2, 'o');
+		canvas.print(ps);
+		assertEquals("-----\n|xxo|\n|   |\n-----\n", out.toString("UTF-8"));
+		out.reset();
+		canvas.setNewDimensions(3, 1);
+		canvas.print(ps);
+		assertEquals("----\n|  |\n----\n", out.toString("UTF-8"));
+		// the incremental print paints the small preview again
+		out.reset();
+		canvas.printChanges(ps);
+		assertEquals("\u001B[H\u001B[2J----\n|  |\n----\n", out.toString("UTF-8"));
+		out.reset();
+		canvas.setPreviewLevel(0);
+		canvas.print(ps);
+		assertEquals(canvas.toString(), out.toString("UTF-8"));
+	}
+	
+	@Test
+	public void previewUpdatesTest() throws NullPointerException, CanvasDimensionNotSupportedException, UnsupportedEncodingException {
+		Random random = new Random(25);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PrintStream ps = new PrintStream(out);
+		canvas.setNewDimensions(300, 170);
+		canvas.setPreviewLevel(3);
+		for (int step = 0; step < 200; ++step) {
+			int level = 1 + random.nextInt(3);
+			canvas.setPreviewLevel(level);
+			for (int i = 0; i < 5; ++i) {
+				int x = 1 + random.nextInt(300);
+				int y = 1 + random.nextInt(170);
+				char symbol = (char) ('a' + random.nextInt(3));
+				try {
+					switch (random.nextInt(4)) {
+					case 0: canvas.setElementAt(x, y, symbol); break;
+					case 1: canvas.fillRectangle(x, y, Math.min(300, x + random.nextInt(200)), Math.min(170, y + random.nextInt(200)), symbol); break;
+					case 2: canvas.bucketTool(x, y, symbol); break;
+					default: if (random.nextInt(20) == 0) canvas.clean();
+					}
+				} catch (CanvasOutOfBordersException | CanvasNotEmptyElementException e) {
+					// painted pixels are kept
+				}
+			}
+			out.reset();
+			canvas.print(ps);
+			String updated = out.toString("UTF-8");
+			// built again from the pixels
+			canvas.setPreviewLevel(0);
+			canvas.setPreviewLevel(level);
+			out.reset();
+			canvas.print(ps);
+			assertEquals(out.toString("UTF-8"), updated);
+		}
+	}
+	
+	@Test
+	public void edgeCasesPreviewTest() throws NullPointerException, CanvasDimensionNotSupportedException {
+		exception.expect(CanvasDimensionNotSupportedException.class);
+		canvas.setPreviewLevel(4);
+	}
+	
 	@Test
 	public void cleanCanvasTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException {
 		canvas.setNewDimensions(3, 4);
@@ -0,0 +1,299 @@
+/**
+ * TDD tests with Junit
+ * @author Attilio Caravelli
+ *
+ */
+package com.painter.boards;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.painter.exceptions.canvas.base.CanvasDimensionNotSupportedException;
+import com.painter.exceptions.canvas.base.CanvasNotEmptyElementException;
+import com.painter.exceptions.canvas.base.CanvasOutOfBordersException;
+import com.painter.exceptions.canvas.twodims.CanvasObliqueLineNotSupportedException;
+import com.painter.interfaces.PixelStore;
+import com.painter.models.canvas.TwoDimCanvas;
+import com.painter.models.canvas.stores.AdaptivePixelStore;
+import com.painter.models.canvas.stores.FlatPixelStore;
+import com.painter.models.canvas.stores.MappedPixelStore;
+import com.painter.models.canvas.stores.PackedPixelStore;
+import com.painter.models.canvas.stores.QuadTreePixelStore;
+import com.painter.models.canvas.stores.RunLengthPixelStore;
+import com.painter.models.canvas.stores.ScenePixelStore;
+import com.painter.models.canvas.stores.TiledPixelStore;
+
+
+public class PixelStoreTest {
+
+	private PixelStore[] stores() {
+		return new PixelStore[] {new FlatPixelStore(), new PackedPixelStore(), new MappedPixelStore(), new TiledPixelStore(), new QuadTreePixelStore(), new RunLengthPixelStore(), new AdaptivePixelStore(), new ScenePixelStore()};
+	}
+
+	@Test
+	public void basicsTest() {
+		for (PixelStore store : stores()) {
+			store.resize(5, 3, ' ');
+			assertEquals(5, store.getWidth());
+			assertEquals(3, store.getHeight());
+			store.set(4, 2, 'x');
+			store.fillSpan(1, 1, 3, 'c');
+			char[] row = new char[5];
+			store.readRow(1, row);
+			assertEquals(" ccc ", new String(row));
+			store.readRow(2, row);
+			assertEquals("    x", new String(row));
+			assertEquals('x', store.get(4, 2));
+			store.clear(' ');
+			store.readRow(2, row);
+			assertEquals("     ", new String(row));
+		}
+	}
+
+	@Test
+	public void canvasOnStoreTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException {
+		for (PixelStore store : stores()) {
+			TwoDimCanvas canvas = new TwoDimCanvas(store);
+			canvas.setNewDimensions(4, 4);
+			canvas.drawRectangle(1, 1, 4, 4, 'x');
+			canvas.bucketTool(2, 2, 'c');
+			String expected = "------\n|xxxx|\n|xccx|\n|xccx|\n|xxxx|\n------\n";
+			assertEquals(expected, canvas.toString());
+		}
+	}
+
+	@Test
+	public void clearAndResizeReuseTest() {
+		for (PixelStore store : stores()) {
+			store.resize(60, 40, ' ');
+			for (int y = 0; y < 40; ++y) store.fillSpan(y, 0, 59, (char) ('a' + y % 20));
+			store.clear('.');
+			store.set(7, 3, 'x');
+			char[] row = new char[60];
+			store.readRow(3, row);
+			assertEquals(".......x", new String(row, 0, 8));
+			assertEquals('.', store.get(59, 3));
+			assertEquals('.', store.get(0, 39));
+			assertEquals(60, store.runEnd(39, 0, 60));
+			// reused buffers never show the previous content
+			store.resize(50, 30, ' ');
+			for (int y = 0; y < 30; ++y) assertEquals(50, store.runEnd(y, 0, 50));
+			assertEquals(' ', store.get(49, 29));
+			for (char c = 'A'; c < 'A' + 20; ++c) store.set(c - 'A', 0, c);
+			store.clear(' ');
+			store.fillSpan(1, 0, 9, 'y');
+			assertEquals(' ', store.get(5, 0));
+			assertEquals(10, store.runEnd(1, 0, 50));
+			store.resize(70, 45, ' ');
+			assertEquals(' ', store.get(69, 44));
+			assertEquals(70, store.runEnd(1, 0, 70));
+		}
+	}
+
+	@Test
+	public void runsTest() {
+		for (PixelStore store : stores()) {
+			store.resize(40, 2, ' ');
+			store.fillSpan(0, 3, 29, 'x');
+			assertEquals(3, store.runEnd(0, 0, 40));
+			assertEquals(30, store.runEnd(0, 3, 40));
+			assertEquals(20, store.runEnd(0, 3, 20));
+			assertEquals(40, store.runEnd(0, 30, 40));
+			assertEquals(40, store.runEnd(1, 0, 40));
+		}
+	}
+
+	@Test
+	public void packedPaletteWideningTest() {
+		PackedPixelStore store = new PackedPixelStore();
+		store.resize(30, 3, ' ');
+		assertEquals(4, store.getBitsPerPixel());
+		store.fillSpan(1, 0, 29, 'x');
+		for (int i = 0; i < 26; ++i) store.set(i, 2, (char) ('a' + i));
+		assertEquals(5, store.getBitsPerPixel());
+		char[] row = new char[30];
+		store.readRow(1, row);
+		assertEquals("xxxxxxxxxxxxxxxxxxxxxxxxxxxxxx", new String(row));
+		store.readRow(2, row);
+		assertEquals("abcdefghijklmnopqrstuvwxyz    ", new String(row));
+		store.clear(' ');
+		assertEquals(4, store.getBitsPerPixel());
+		assertEquals(' ', store.get(29, 2));
+	}
+
+	@Test
+	public void mappedLargeCanvasTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException {
+		MappedPixelStore store = new MappedPixelStore();
+		TwoDimCanvas canvas = new TwoDimCanvas(store);
+		canvas.setNewDimensions(100000, 1000);
+		assertTrue(store.isMapped());
+		assertEquals(new Character(' '), canvas.getElementAt(100000, 1000));
+		canvas.drawRectangle(99990, 990, 100000, 1000, 'x');
+		assertEquals(new Character('x'), canvas.getElementAt(100000, 1000));
+		assertEquals(new Character(' '), canvas.getElementAt(99995, 995));
+		canvas.clean();
+		assertEquals(new Character(' '), canvas.getElementAt(100000, 1000));
+		canvas.setNewDimensions(2, 2);
+		assertFalse(store.isMapped());
+	}
+
+	@Test
+	public void sameOutputOnEveryStoreTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException {
+		for (PixelStore store : stores()) {
+			Random random = new Random(7);
+			TwoDimCanvas expected = new TwoDimCanvas();
+			TwoDimCanvas canvas = new TwoDimCanvas(store);
+			expected.setNewDimensions(150, 90);
+			canvas.setNewDimensions(150, 90);
+			for (int i = 0; i < 60; ++i) {
+				int x1 = 1 + random.nextInt(150), y1 = 1 + random.nextInt(90);
+				int x2 = 1 + random.nextInt(150), y2 = 1 + random.nextInt(90);
+				char color = (char) ('a' + random.nextInt(26));
+				switch (random.nextInt(3)) {
+				case 0:
+					if (random.nextBoolean()) y2 = y1; else x2 = x1;
+					drawLine(expected, x1, y1, x2, y2);
+					drawLine(canvas, x1, y1, x2, y2);
+					break;
+				case 1:
+					drawRectangle(expected, x1, y1, x2, y2);
+					drawRectangle(canvas, x1, y1, x2, y2);
+					break;
+				default:
+					expected.bucketTool(x1, y1, color);
+					canvas.bucketTool(x1, y1, color);
+				}
+				canvas.commit();
+				assertEquals(expected.toString(), canvas.toString());
+			}
+		}
+	}
+
+	@Test
+	public void tiledSparseFillTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException {
+		TiledPixelStore store = new TiledPixelStore();
+		TwoDimCanvas canvas = new TwoDimCanvas(store);
+		canvas.setNewDimensions(1000, 1000);
+		assertEquals(0, store.getMaterializedTiles());
+		canvas.drawRectangle(10, 10, 20, 20, 'x');
+		assertEquals(1, store.getMaterializedTiles());
+		canvas.bucketTool(500, 500, 'c');
+		assertEquals(new Character('c'), canvas.getElementAt(1000, 1000));
+		assertEquals(new Character(' '), canvas.getElementAt(15, 15));
+		assertTrue(store.getMaterializedTiles() <= 9);
+	}
+
+	@Test
+	public void quadTreeMergeTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException {
+		QuadTreePixelStore store = new QuadTreePixelStore();
+		TwoDimCanvas canvas = new TwoDimCanvas(store);
+		canvas.setNewDimensions(20000, 20000);
+		assertEquals(1, store.getNodeCount());
+		canvas.drawRectangle(100, 100, 12000, 14000, 'x');
+		assertTrue(store.getNodeCount() < 1000000);
+		canvas.bucketTool(1, 1, 'c');
+		canvas.bucketTool(200, 200, 'c');
+		assertEquals(new Character('c'), canvas.getElementAt(20000, 20000));
+		assertEquals(new Character('x'), canvas.getElementAt(12000, 100));
+		assertEquals(new Character('c'), canvas.getElementAt(11999, 101));
+		canvas.clean();
+		assertEquals(1, store.getNodeCount());
+	}
+
+	@Test
+	public void runLengthSplitMergeTest() {
+		RunLengthPixelStore store = new RunLengthPixelStore();
+		store.resize(1000000, 2, ' ');
+		assertEquals(2, store.getRunCount());
+		store.fillSpan(0, 10, 999989, 'x');
+		store.set(500000, 0, 'c');
+		assertEquals(6, store.getRunCount());
+		store.set(500000, 0, 'x');
+		assertEquals(4, store.getRunCount());
+		assertEquals(999990, store.runEnd(0, 10, 1000000));
+		store.fillSpan(0, 10, 999989, ' ');
+		assertEquals(2, store.getRunCount());
+	}
+
+	@Test
+	public void adaptiveMigrationTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException, CanvasObliqueLineNotSupportedException {
+		TwoDimCanvas canvas = new TwoDimCanvas(new AdaptivePixelStore());
+		canvas.setNewDimensions(1000, 600);
+		assertEquals("TILED", canvas.getRepresentation());
+		long sparseMemory = canvas.getMemoryUsage();
+		for (int y = 1; y <= 600; y += 3) canvas.drawLine(1, y, 1000, y, 'x');
+		canvas.commit();
+		assertEquals("RLE", canvas.getRepresentation());
+		for (int y = 2; y <= 600; y += 3) {
+			for (int x = 1; x <= 1000; x += 2) canvas.setElementAt(x, y, 'c');
+		}
+		String expected = canvas.toString();
+		canvas.commit();
+		assertEquals("FLAT", canvas.getRepresentation());
+		assertEquals(expected, canvas.toString());
+		canvas.setNewDimensions(1000, 600);
+		assertEquals("TILED", canvas.getRepresentation());
+		assertEquals(sparseMemory, canvas.getMemoryUsage());
+		// too many tiles
+		AdaptivePixelStore store = new AdaptivePixelStore();
+		store.resize(Integer.MAX_VALUE - 1, 4096, ' ');
+		assertEquals("RLE", store.getRepresentation());
+		store.fillSpan(4095, 0, Integer.MAX_VALUE - 2, 'x');
+		store.commit();
+		assertEquals('x', store.get(Integer.MAX_VALUE - 2, 4095));
+	}
+
+	@Test
+	public void sceneRunsTest() {
+		ScenePixelStore scene = new ScenePixelStore();
+		FlatPixelStore flat = new FlatPixelStore();
+		Random random = new Random(16);
+		for (PixelStore store : new PixelStore[] {scene, flat}) store.resize(200, 100, ' ');
+		for (int i = 0; i < 400; ++i) {
+			int x1 = random.nextInt(200), y1 = random.nextInt(100);
+			int x2 = Math.min(199, x1 + random.nextInt(60)), y2 = Math.min(99, y1 + random.nextInt(20));
+			char symbol = i % 7 == 0 ? ' ' : (char) ('a' + random.nextInt(2));
+			for (PixelStore store : new PixelStore[] {scene, flat}) store.fillRect(x1, y1, x2, y2, symbol);
+			int y = random.nextInt(100), x = random.nextInt(200), limit = x + 1 + random.nextInt(200 - x);
+			assertEquals(flat.runEnd(y, x, limit), scene.runEnd(y, x, limit));
+		}
+	}
+
+	@Test
+	public void sceneLargeCanvasTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException {
+		ScenePixelStore store = new ScenePixelStore();
+		TwoDimCanvas canvas = new TwoDimCanvas(store);
+		canvas.setNewDimensions(20000, 20000);
+		canvas.drawRectangle(10, 10, 15000, 12000, 'x');
+		canvas.drawSegment(100, 100, 2000, 3000, 'x');
+		canvas.bucketTool(20, 5000, 'c');
+		assertEquals('c', canvas.getElementAt(14999, 11999).charValue());
+		assertEquals('x', canvas.getElementAt(15000, 11999).charValue());
+		assertEquals(' ', canvas.getElementAt(15001, 11999).charValue());
+		// nothing close to 20000x20000 cells is ever held
+		assertTrue(store.getMemoryUsage() < (1L << 24));
+		char[] row = new char[20000];
+		store.readRow(11998, row);
+		assertEquals(" xcc", new String(row, 8, 4));
+	}
+
+	@Test
+	public void edgeCasesTooLargeTest() {
+		assertFalse(new FlatPixelStore().supports(100000, 100000));
+	}
+
+	private void drawLine(TwoDimCanvas canvas, int x1, int y1, int x2, int y2) {
+		try {
+			canvas.drawLine(x1, y1, x2, y2, 'x');
+		} catch (CanvasNotEmptyElementException | CanvasOutOfBordersException | CanvasObliqueLineNotSupportedException e) {}
+	}
+
+	private void drawRectangle(TwoDimCanvas canvas, int x1, int y1, int x2, int y2) {
+		try {
+			canvas.drawRectangle(x1, y1, x2, y2, 'x');
+		} catch (CanvasNotEmptyElementException | CanvasOutOfBordersException e) {}
+	}
+}
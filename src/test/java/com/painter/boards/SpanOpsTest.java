@@ -0,0 +1,50 @@
+/**
+ * TDD tests with Junit
+ * @author Attilio Caravelli
+ *
+ */
+package com.painter.boards;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.painter.interfaces.SpanOps;
+import com.painter.models.canvas.spans.ScalarSpanOps;
+import com.painter.models.canvas.spans.SpanOpsLoader;
+
+
+public class SpanOpsTest {
+
+	@Test
+	public void sameResultsAsScalarTest() {
+		SpanOps scalar = new ScalarSpanOps();
+		SpanOps loaded = SpanOpsLoader.get();
+		Random random = new Random(5);
+		for (int i = 0; i < 500; ++i) {
+			char[] expected = new char[1 + random.nextInt(300)];
+			Arrays.fill(expected, ' ');
+			int from = random.nextInt(expected.length);
+			int to = from + random.nextInt(expected.length - from + 1);
+			if (to > from && random.nextBoolean()) expected[from + random.nextInt(to - from)] = 'x';
+			char[] actual = expected.clone();
+			assertEquals(scalar.mismatch(expected, from, to, ' '), loaded.mismatch(actual, from, to, ' '));
+			scalar.fill(expected, from, to, 'c');
+			loaded.fill(actual, from, to, 'c');
+			assertArrayEquals(expected, actual);
+		}
+	}
+
+	@Test
+	public void edgeCasesEmptySpanTest() {
+		SpanOps ops = SpanOpsLoader.get();
+		char[] cells = "  x ".toCharArray();
+		assertEquals(1, ops.mismatch(cells, 1, 1, ' '));
+		assertEquals(2, ops.mismatch(cells, 0, 4, ' '));
+		ops.fill(cells, 3, 3, 'c');
+		assertEquals("  x ", new String(cells));
+	}
+}
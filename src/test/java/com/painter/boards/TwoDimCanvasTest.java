@@ -7,6 +7,8 @@ package com.painter.boards;
 
 import static org.junit.Assert.*;
 
+import java.util.Random;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -16,7 +18,12 @@ import com.painter.exceptions.canvas.base.CanvasDimensionNotSupportedException;
 import com.painter.exceptions.canvas.base.CanvasNotEmptyElementException;
 import com.painter.exceptions.canvas.base.CanvasOutOfBordersException;
 import com.painter.exceptions.canvas.twodims.CanvasObliqueLineNotSupportedException;
+import com.painter.exceptions.canvas.twodims.CanvasSpriteNotFoundException;
+import com.painter.interfaces.PixelSource;
 import com.painter.models.canvas.TwoDimCanvas;
+import com.painter.models.canvas.index.MipmapPyramid;
+import com.painter.models.canvas.stores.FlatPixelStore;
+import com.painter.models.canvas.stores.ObservablePixelStore;
 
 
 public class TwoDimCanvasTest {
@@ -95,6 +102,260 @@ public class TwoDimCanvasTest {
 		assertEquals(expected, canvas.toString());
 	}
 	
+	@Test
+	public void bucketFillDiagonalConnectivityTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException {
+		canvas.setNewDimensions(3, 3);
+		canvas.setElementAt(2, 1, 'x');
+		canvas.setElementAt(1, 2, 'x');
+		canvas.bucketTool(1, 1, 'c');
+		String expected = "-----\n|cxc|\n|xcc|\n|ccc|\n-----\n";
+		assertEquals(expected, canvas.toString());
+	}
+	
+	@Test
+	public void bucketFillLargeCanvasTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException, CanvasObliqueLineNotSupportedException {
+		canvas.setNewDimensions(4000, 4000);
+		for (int x = 2; x < 3996; x += 4) {
+			canvas.drawLine(x, 1, x, 3999, 'x');
+			canvas.drawLine(x+2, 2, x+2, 4000, 'x');
+		}
+		canvas.bucketTool(1, 1, 'c');
+		assertEquals(new Character('c'), canvas.getElementAt(4000, 4000));
+		assertEquals(new Character('c'), canvas.getElementAt(3999, 1));
+		assertEquals(new Character('x'), canvas.getElementAt(2, 1));
+	}
+	
+	@Test
+	public void parallelBucketFillTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException, CanvasObliqueLineNotSupportedException {
+		TwoDimCanvas parallel = new TwoDimCanvas();
+		parallel.setParallelFillThreshold(0);
+		Random random = new Random(11);
+		for (TwoDimCanvas c : new TwoDimCanvas[] {canvas, parallel}) c.setNewDimensions(700, 600);
+		for (int i = 0; i < 300; ++i) {
+			int x = 1 + random.nextInt(700), y = 1 + random.nextInt(600);
+			int x2 = Math.min(700, x + random.nextInt(300)), y2 = Math.min(600, y + random.nextInt(300));
+			for (TwoDimCanvas c : new TwoDimCanvas[] {canvas, parallel}) {
+				try {
+					if (i % 2 == 0) c.drawRectangle(x, y, x2, y2, 'x');
+					else c.drawLine(x, y, x2, y, 'x');
+				} catch (CanvasNotEmptyElementException e) {}
+			}
+		}
+		for (int i = 0; i < 20; ++i) {
+			int x = 1 + random.nextInt(700), y = 1 + random.nextInt(600);
+			char color = (char) ('a' + i);
+			canvas.bucketTool(x, y, color);
+			parallel.bucketTool(x, y, color);
+			assertEquals(canvas.toString(), parallel.toString());
+		}
+	}
+	
+	@Test
+	public void componentIndexTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException, CanvasObliqueLineNotSupportedException {
+		TwoDimCanvas indexed = new TwoDimCanvas();
+		indexed.enableComponentIndex();
+		Random random = new Random(23);
+		for (int round = 0; round < 3; ++round) {
+			for (TwoDimCanvas c : new TwoDimCanvas[] {canvas, indexed}) c.setNewDimensions(120, 80);
+			for (int i = 0; i < 200; ++i) {
+				int x = 1 + random.nextInt(120), y = 1 + random.nextInt(80);
+				if (i % 10 == 9) {
+					assertEquals(canvas.getRegionSize(x, y), indexed.getRegionSize(x, y));
+					char color = (char) ('a' + i % 26);
+					canvas.bucketTool(x, y, color);
+					indexed.bucketTool(x, y, color);
+					assertEquals(canvas.toString(), indexed.toString());
+					assertEquals(0, indexed.getRegionSize(x, y));
+					continue;
+				}
+				int x2 = Math.min(120, x + random.nextInt(40)), y2 = Math.min(80, y + random.nextInt(40));
+				for (TwoDimCanvas c : new TwoDimCanvas[] {canvas, indexed}) {
+					try {
+						if (i % 2 == 0) c.drawRectangle(x, y, x2, y2, 'x');
+						else c.drawLine(x, y, x, y2, 'x');
+					} catch (CanvasNotEmptyElementException e) {}
+				}
+			}
+		}
+		indexed.setNewDimensions(4, 3);
+		indexed.drawLine(2, 1, 2, 3, 'x');
+		assertEquals(3, indexed.getRegionSize(1, 1));
+		assertEquals(6, indexed.getRegionSize(4, 2));
+	}
+	
+	@Test
+	public void occupancyIndexTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException, CanvasObliqueLineNotSupportedException {
+		TwoDimCanvas indexed = new TwoDimCanvas();
+		indexed.enableOccupancyIndex();
+		Random random = new Random(31);
+		for (TwoDimCanvas c : new TwoDimCanvas[] {canvas, indexed}) c.setNewDimensions(300, 200);
+		for (int i = 0; i < 400; ++i) {
+			int x = 1 + random.nextInt(320), y = 1 + random.nextInt(210);
+			int x2 = 1 + random.nextInt(320), y2 = 1 + random.nextInt(210);
+			char color = (char) ('a' + random.nextInt(3));
+			String expected = null;
+			for (TwoDimCanvas c : new TwoDimCanvas[] {canvas, indexed}) {
+				String failure = "";
+				try {
+					if (i % 3 == 0) c.drawRectangle(x, y, x2, y2, color);
+					else if (i % 3 == 1) c.drawLine(x, y, x2, y, color);
+					else c.drawLine(x, y, x, y2, color);
+				} catch (CanvasNotEmptyElementException | CanvasOutOfBordersException e) {
+					failure = e.getClass().getName();
+				}
+				if (expected == null) expected = failure;
+				else assertEquals(expected, failure);
+			}
+			if (i % 50 == 0) indexed.bucketTool(x % 300 + 1, y % 200 + 1, 'o');
+			if (i % 50 == 0) canvas.bucketTool(x % 300 + 1, y % 200 + 1, 'o');
+			assertEquals(canvas.toString(), indexed.toString());
+			// resets reuse the bitmaps of an older generation
+			if (i % 90 == 89) {
+				for (TwoDimCanvas c : new TwoDimCanvas[] {canvas, indexed}) {
+					if (i % 180 == 89) c.clean();
+					else if (i % 360 == 179) c.setNewDimensions(340, 230);
+					else c.setNewDimensions(300, 200);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void mipmapPyramidTest() {
+		ObservablePixelStore store = new ObservablePixelStore(new FlatPixelStore());
+		store.resize(600, 333, ' ');
+		MipmapPyramid pyramid = new MipmapPyramid(store, ' ', '#');
+		pyramid.getLevel(1);
+		store.addObserver(pyramid);
+		Random random = new Random(7);
+		for (int i = 0; i < 100; ++i) {
+			int x = random.nextInt(600), y = random.nextInt(333);
+			int x2 = Math.min(599, x + random.nextInt(400)), y2 = Math.min(332, y + random.nextInt(300));
+			char symbol = (char) ('a' + random.nextInt(3));
+			if (i % 40 == 39) store.clear(' ');
+			else if (i % 2 == 0) store.fillRect(x, y, x2, y2, symbol);
+			else store.fillSpan(y, x, x2, symbol);
+			// updated levels equal to levels built from the pixels
+			MipmapPyramid built = new MipmapPyramid(store, ' ', '#');
+			for (int level = 1; level <= MipmapPyramid.MAX_LEVEL; ++level) {
+				PixelSource updated = pyramid.getLevel(level), expected = built.getLevel(level);
+				assertEquals(expected.getWidth(), updated.getWidth());
+				assertEquals(expected.getHeight(), updated.getHeight());
+				char[] row = new char[updated.getWidth()], expectedRow = new char[expected.getWidth()];
+				for (int j = 0; j < updated.getHeight(); ++j) {
+					updated.readRow(j, row);
+					expected.readRow(j, expectedRow);
+					assertArrayEquals(expectedRow, row);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void drawRectangleAllOrNothingTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException, CanvasObliqueLineNotSupportedException {
+		canvas.setNewDimensions(4, 3);
+		canvas.setElementAt(4, 3, 'o');
+		String expected = canvas.toString();
+		try {
+			canvas.drawRectangle(1, 1, 4, 3, 'x');
+		} catch (CanvasNotEmptyElementException e) {}
+		assertEquals(expected, canvas.toString());
+		try {
+			canvas.drawLine(2, 2, 5, 2, 'x');
+		} catch (CanvasOutOfBordersException e) {}
+		assertEquals(expected, canvas.toString());
+	}
+	
+	@Test
+	public void rasterizedShapesTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException {
+		canvas.setNewDimensions(5, 5);
+		canvas.drawEllipse(3, 3, 2, 2, 'x');
+		String expected = "-------\n|  x  |\n|xx xx|\n|x   x|\n|xx xx|\n|  x  |\n-------\n";
+		assertEquals(expected, canvas.toString());
+		canvas.setNewDimensions(6, 3);
+		canvas.drawSegment(6, 3, 1, 1, 'x');
+		expected = "--------\n|xx    |\n|  xx  |\n|    xx|\n--------\n";
+		assertEquals(expected, canvas.toString());
+		canvas.fillRectangle(5, 1, 6, 2, 'x');
+		expected = "--------\n|xx  xx|\n|  xxxx|\n|    xx|\n--------\n";
+		assertEquals(expected, canvas.toString());
+		canvas.setNewDimensions(4, 4);
+		canvas.drawSegment(1, 1, 4, 4, 'x');
+		// fills are 8-connected, so they cross a diagonal stroke
+		canvas.bucketTool(4, 1, 'c');
+		expected = "------\n|xccc|\n|cxcc|\n|ccxc|\n|cccx|\n------\n";
+		assertEquals(expected, canvas.toString());
+	}
+	
+	@Test
+	public void edgeCasesRasterizedShapesTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException {
+		canvas.setNewDimensions(4, 4);
+		canvas.setElementAt(3, 3, 'o');
+		String expected = canvas.toString();
+		try {
+			canvas.fillRectangle(1, 1, 4, 4, 'x');
+		} catch (CanvasNotEmptyElementException e) {}
+		assertEquals(expected, canvas.toString());
+		exception.expect(CanvasOutOfBordersException.class);
+		canvas.drawEllipse(2, 2, 2, 1, 'x');
+	}
+	
+	@Test
+	public void edgeCasesHugeShapesTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasNotEmptyElementException {
+		canvas.setNewDimensions(20, 4);
+		String expected = canvas.toString();
+		// rejected before being rasterized
+		int rejected = 0;
+		try {
+			canvas.drawSegment(1, 1, 1, 2000000000, 'x');
+		} catch (CanvasOutOfBordersException e) { ++rejected; }
+		try {
+			canvas.fillRectangle(1, 1, 5, 1000000000, 'x');
+		} catch (CanvasOutOfBordersException e) { ++rejected; }
+		try {
+			canvas.drawEllipse(2, 2, 1, Integer.MAX_VALUE, 'x');
+		} catch (CanvasOutOfBordersException e) { ++rejected; }
+		try {
+			canvas.drawSegment(Integer.MAX_VALUE, 1, 1, 1, 'x');
+		} catch (CanvasOutOfBordersException e) { ++rejected; }
+		assertEquals(4, rejected);
+		assertEquals(expected, canvas.toString());
+	}
+	
+	@Test
+	public void spriteTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException, CanvasSpriteNotFoundException {
+		canvas.setNewDimensions(6, 4);
+		canvas.drawRectangle(1, 1, 2, 2, 'x');
+		canvas.setElementAt(3, 1, 'o');
+		canvas.captureSprite(1, 1, 3, 2, "a");
+		canvas.stampSprite(4, 3, "a");
+		String expected = "--------\n|xxo   |\n|xx    |\n|   xxo|\n|   xx |\n--------\n";
+		assertEquals(expected, canvas.toString());
+		// clipped by the borders
+		canvas.stampSprite(6, 1, "a");
+		expected = "--------\n|xxo  x|\n|xx   x|\n|   xxo|\n|   xx |\n--------\n";
+		assertEquals(expected, canvas.toString());
+		// overlapping copy
+		canvas.copyArea(1, 1, 3, 2, 2, 2);
+		expected = "--------\n|xxo  x|\n|xxxo x|\n| xxxxo|\n|   xx |\n--------\n";
+		assertEquals(expected, canvas.toString());
+	}
+	
+	@Test
+	public void edgeCasesSpriteTest() throws NullPointerException, CanvasDimensionNotSupportedException, CanvasOutOfBordersException, CanvasNotEmptyElementException, CanvasSpriteNotFoundException, CanvasObliqueLineNotSupportedException {
+		canvas.setNewDimensions(4, 2);
+		canvas.drawLine(1, 1, 2, 1, 'x');
+		canvas.setElementAt(4, 2, 'o');
+		canvas.captureSprite(1, 1, 2, 2, "a");
+		String expected = canvas.toString();
+		try {
+			canvas.stampSprite(3, 2, "a");
+		} catch (CanvasNotEmptyElementException e) {}
+		assertEquals(expected, canvas.toString());
+		exception.expect(CanvasSpriteNotFoundException.class);
+		canvas.stampSprite(1, 1, "b");
+	}
+	
 	@Test
 	public void edgeCasesDrawLineAsPointTest() throws NullPointerException, CanvasNotEmptyElementException, CanvasOutOfBordersException, CanvasDimensionNotSupportedException, CanvasObliqueLineNotSupportedException{
 		canvas.setNewDimensions(3, 4);
@@ -14,10 +14,13 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import com.painter.exceptions.canvas.base.CanvasOutOfBordersException;
 import com.painter.exceptions.factories.CanvasNotSupportedException;
 import com.painter.exceptions.factories.CommandNotSupportedException;
 import com.painter.models.canvas.BasicCanvas;
 import com.painter.models.canvas.TwoDimCanvas;
+import com.painter.parsers.CommandLexer;
+import com.painter.parsers.CommandRecord;
 
 
 public class CommandFactoryTest {
@@ -66,6 +69,92 @@ public class CommandFactoryTest {
 		assertEquals(expected, canvas.toString());
 	}
 	
+	@Test
+	public void shapesTest() throws CanvasNotSupportedException, NullPointerException, OperationNotSupportedException, CommandNotSupportedException {
+		cmdf.executeCommand(canvas, new String [] {"C", "5", "4"});
+		cmdf.executeCommand(canvas, new String [] {"D", "1", "1", "4", "4"});
+		String expected = "-------\n|x    |\n| x   |\n|  x  |\n|   x |\n-------\n";
+		assertEquals(expected, canvas.toString());
+		cmdf.executeCommand(canvas, new String [] {"F", "4", "1", "5", "2"});
+		expected = "-------\n|x  xx|\n| x xx|\n|  x  |\n|   x |\n-------\n";
+		assertEquals(expected, canvas.toString());
+		cmdf.executeCommand(canvas, new String [] {"C", "3", "3"});
+		cmdf.executeCommand(canvas, new String [] {"E", "2", "2", "1", "1"});
+		expected = "-----\n| x |\n|x x|\n| x |\n-----\n";
+		assertEquals(expected, canvas.toString());
+	}
+	
+	@Test
+	public void spritesTest() throws CanvasNotSupportedException, NullPointerException, OperationNotSupportedException, CommandNotSupportedException {
+		cmdf.executeCommand(canvas, new String [] {"C", "4", "2"});
+		cmdf.executeCommand(canvas, new String [] {"L", "1", "1", "2", "1"});
+		cmdf.executeCommand(canvas, new String [] {"K", "1", "1", "2", "1", "a"});
+		cmdf.executeCommand(canvas, new String [] {"S", "3", "2", "a"});
+		cmdf.executeCommand(canvas, new String [] {"Y", "1", "1", "1", "1", "4", "1"});
+		String expected = "------\n|xx x|\n|  xx|\n------\n";
+		assertEquals(expected, canvas.toString());
+	}
+	
+	@Test
+	public void recordsTest() throws CanvasNotSupportedException, NullPointerException, CommandNotSupportedException {
+		CommandLexer lexer = new CommandLexer(RuleFactory.init());
+		CommandRecord record = new CommandRecord();
+		for (String line : new String[] {"C 4 5", "L 1 2 3 2", "R 2 2 4 5", "B 3 3 c"}) {
+			assertTrue(lexer.lex(line, record));
+			cmdf.executeCommand(canvas, record);
+		}
+		String expected = "------\n|    |\n|xxxx|\n| xcx|\n| xcx|\n| xxx|\n------\n";
+		assertEquals(expected, canvas.toString());
+		// commands added for split lines only still get the record
+		cmdf.addCommand(CommandFactory.cmdL, (board, parts) -> ((TwoDimCanvas) board).clean());
+		record.reset('L');
+		cmdf.executeCommand(canvas, record);
+		assertEquals("------\n|    |\n|    |\n|    |\n|    |\n|    |\n------\n", canvas.toString());
+		record.reset('W');
+		exception.expect(CommandNotSupportedException.class);
+		cmdf.executeCommand(canvas, record);
+	}
+	
+	@Test
+	public void loopsTest() throws CanvasNotSupportedException, NullPointerException, CommandNotSupportedException {
+		CommandLexer lexer = new CommandLexer(RuleFactory.init());
+		CommandRecord record = new CommandRecord();
+		for (String line : new String[] {"C 9 5", "X 3 0 2 L 1 1 9 1", "X 4 2 0 S 1 1 a", "X 2 5 0 B 1 2 o"}) {
+			assertTrue(lexer.lex(line, record));
+			cmdf.executeCommand(canvas, record);
+		}
+		String expected = "-----------\n"+
+						  "|xxxxxxxxx|\n"+
+						  "|ooooooooo|\n"+
+						  "|xxxxxxxxx|\n"+
+						  "|         |\n"+
+						  "|xxxxxxxxx|\n"+
+						  "-----------\n";
+		assertEquals(expected, canvas.toString());
+		// the last repetitions are out of the canvas
+		assertTrue(lexer.lex("X 10 3 0 F 1 4 2 4", record));
+		cmdf.executeCommand(canvas, record);
+		assertTrue(cmdf.getRejection() instanceof CanvasOutOfBordersException);
+		assertEquals("|xx xx xx |\n", canvas.toString().split("(?<=\n)")[4]);
+		// split command lines
+		cmdf.executeCommand(canvas, new String[] {"X", "2", "0", "0", "F", "1", "4", "9", "4"});
+		assertEquals("|xxxxxxxxx|\n", canvas.toString().split("(?<=\n)")[4]);
+		// coordinates beyond Integer.MAX_VALUE end the loop
+		assertTrue(lexer.lex("X 2147483647 2147483647 0 F 1 4 2 4", record));
+		cmdf.executeCommand(canvas, record);
+		// loops leaving the canvas, or not moving at all, end early
+		assertTrue(lexer.lex("X 2147483647 1 0 L 30 1 30 1", record));
+		cmdf.executeCommand(canvas, record);
+		assertNotNull(cmdf.getRejection());
+		assertTrue(lexer.lex("X 2147483647 0 0 F 1 4 2 4", record));
+		cmdf.executeCommand(canvas, record);
+		assertNull(cmdf.getRejection());
+		assertEquals("|xxxxxxxxx|\n", canvas.toString().split("(?<=\n)")[4]);
+		assertTrue(lexer.lex("X 2 0 0 C 3 3", record));
+		exception.expect(CommandNotSupportedException.class);
+		cmdf.executeCommand(canvas, record);
+	}
+
 	@Test
 	public void edgeCasesNumberFormatException1() throws NumberFormatException, CanvasNotSupportedException, NullPointerException, OperationNotSupportedException, CommandNotSupportedException {
 		exception.expect(NumberFormatException.class);
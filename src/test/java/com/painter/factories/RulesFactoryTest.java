@@ -24,6 +24,9 @@ public class RulesFactoryTest {
 	public void basicsTest() throws RuleNotSupportedException {
 		String expected = "^([A-Z])$";
 		assertEquals(expected, ruleFactory.getRule(CommandFactory.cmdQ).toString());
+		assertEquals(expected, ruleFactory.getRule(CommandFactory.cmdP).toString());
+		expected = "^([A-Z])\\s(\\d+)$";
+		assertEquals(expected, ruleFactory.getRule(CommandFactory.cmdZ).toString());
 		expected = "^([A-Z])\\s(\\d+)\\s(\\d+)$";
 		assertEquals(expected, ruleFactory.getRule(CommandFactory.cmdC).toString());
 		expected = "^([A-Z])\\s(\\d+)\\s(\\d+)\\s([a-z])$";
@@ -32,6 +35,9 @@ public class RulesFactoryTest {
 		assertEquals(expected, ruleFactory.getRule(CommandFactory.cmdL).toString());
 		expected = "^([A-Z])\\s(\\d+)\\s(\\d+)\\s(\\d+)\\s(\\d+)$";
 		assertEquals(expected, ruleFactory.getRule(CommandFactory.cmdR).toString());
+		expected = "^([A-Z])\\s(\\d+)\\s(\\d+)\\s(\\d+)\\s(\\d+)$";
+		assertEquals(expected, ruleFactory.getRule(CommandFactory.cmdE).toString());
+		assertEquals(expected, ruleFactory.getRule(CommandFactory.cmdV).toString());
 		expected = "^([A-Z])";
 		assertEquals(expected, ruleFactory.getRule(RuleFactory.COMMAND).toString());
 	}
@@ -0,0 +1,89 @@
+/**
+ * TDD tests with Junit
+ * @author Attilio Caravelli
+ *
+ */
+package com.painter.managers;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.painter.parsers.ByteSequence;
+import com.painter.parsers.ChannelLineReader;
+import com.painter.parsers.ScriptChunk;
+
+
+public class PainterScriptManagerTest {
+
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+	private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+	private long run(PainterScriptManager manager, String script) throws IOException {
+		return manager.run(Channels.newChannel(new ByteArrayInputStream(script.getBytes(StandardCharsets.US_ASCII))),
+				new PrintStream(out, true), new PrintStream(err, true));
+	}
+
+	@Test
+	public void basicsTest() throws IOException {
+		assertEquals(0, run(new PainterScriptManager(), "C 20 4\r\nL 1 2 6 2\n\nL 6 3 6 4\nR 14 1 18 3\nB 10 3 o"));
+		String result = "----------------------\n"+
+						"|oooooooooooooxxxxxoo|\n"+
+						"|xxxxxxooooooox   xoo|\n"+
+						"|     xoooooooxxxxxoo|\n"+
+						"|     xoooooooooooooo|\n"+
+						"----------------------\n";
+		// printed once, at the end
+		assertEquals(result, out.toString());
+		assertEquals("", err.toString());
+	}
+
+	@Test
+	public void checkpointsAndErrorsTest() throws IOException {
+		assertEquals(3, run(new PainterScriptManager(), "C 3 1\nP\nL 1 1 9 1\nbad\nW 1\nL 1 1 3 1\nP\nQ\nL 1 1 1 1\n"));
+		assertEquals("-----\n|   |\n-----\n-----\n|xxx|\n-----\n", out.toString());
+		assertEquals("line 3: command rejected by the canvas (CanvasOutOfBordersException)\n"+
+					 "line 4: invalid command\n"+
+					 "line 5: invalid command\n", err.toString());
+	}
+
+	@Test
+	public void parallelDecodingTest() throws IOException {
+		StringBuilder script = new StringBuilder("C 100 100\n");
+		for (int i = 0; i < 50000; ++i) script.append(i % 1000 == 999 ? "bad\n" : "L 1 " + (1 + i % 100) + " 100 " + (1 + i % 100) + "\n");
+		script.append("B 1 1 o\n");
+		ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+		new PainterScriptManager(1).run(Channels.newChannel(new ByteArrayInputStream(script.toString().getBytes(StandardCharsets.US_ASCII))),
+				new PrintStream(sequential), new PrintStream(new ByteArrayOutputStream()));
+		assertEquals(50, run(new PainterScriptManager(4), script.toString()));
+		assertEquals(sequential.toString(), out.toString());
+		assertTrue(err.toString().startsWith("line 1001: invalid command\nline 2001: invalid command\n"));
+	}
+
+	@Test
+	public void lineReaderTest() throws IOException {
+		String text = "first\r\n\nthird line is longer than the buffer\nlast";
+		ChannelLineReader reader = new ChannelLineReader(Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII))), 8);
+		ScriptChunk chunk = new ScriptChunk();
+		ByteSequence line = new ByteSequence();
+		StringBuilder lines = new StringBuilder();
+		long expectedLine = 1;
+		while (reader.next(chunk)) {
+			assertEquals(expectedLine, chunk.getFirstLine());
+			for (int i = 0; i < chunk.getLineCount(); ++i) {
+				chunk.line(i, line);
+				lines.append('[').append(line).append(']');
+			}
+			expectedLine += chunk.getLineCount();
+		}
+		assertEquals("[first][][third line is longer than the buffer][last]", lines.toString());
+		assertEquals(5, expectedLine);
+	}
+}
@@ -0,0 +1,143 @@
+/**
+ * TDD tests with Junit
+ * @author Attilio Caravelli
+ *
+ */
+package com.painter.validators;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.painter.exceptions.factories.CanvasNotSupportedException;
+import com.painter.exceptions.factories.CommandNotSupportedException;
+import com.painter.exceptions.parsers.MalformedCommandException;
+import com.painter.factories.CanvasFactory;
+import com.painter.factories.CommandFactory;
+import com.painter.factories.RuleFactory;
+import com.painter.interfaces.Canvas;
+import com.painter.models.Rule;
+import com.painter.parsers.BinaryCommandReader;
+import com.painter.parsers.BinaryCommandWriter;
+import com.painter.parsers.CommandLexer;
+import com.painter.parsers.CommandRecord;
+import com.painter.parsers.ScriptConverter;
+
+
+public class BinaryCommandTest {
+
+	private final CommandLexer lexer = new CommandLexer(RuleFactory.init());
+	private final CommandRecord record = new CommandRecord();
+
+	@Test
+	public void roundTripTest() throws IOException, MalformedCommandException {
+		final String script = "C 20 4\nL 1 2 6 2\nbad line\nR 14 1 18 3\nB 10 3 o\nE 5 3 1 2\nK 1 1 2 2 a\nS 1 1 a\nY 1 1 2 2 3 3\nX 3 0 2 L 1 1 20 1\nC 2147483647 128\nQ\n";
+		final ScriptConverter converter = new ScriptConverter(lexer);
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		assertEquals(11, converter.toBinary(new BufferedReader(new StringReader(script)), Channels.newChannel(binary)));
+		// opcode, two one byte varints
+		assertArrayEquals(new byte[] {'C', 20, 4}, Arrays.copyOf(binary.toByteArray(), 3));
+		StringWriter text = new StringWriter();
+		assertEquals(11, converter.toText(Channels.newChannel(new ByteArrayInputStream(binary.toByteArray())), text));
+		assertEquals(script.replace("bad line\n", ""), text.toString());
+	}
+
+	@Test
+	public void customRulesTest() throws IOException, MalformedCommandException {
+		RuleFactory rf = RuleFactory.init();
+		rf.addRule("H", () -> new Rule("^H\\s(\\d{1,2})\\s([a-z])$"));
+		final ScriptConverter converter = new ScriptConverter(new CommandLexer(rf));
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		// matched by pattern only: no binary framing, so it is skipped
+		assertEquals(2, converter.toBinary(new BufferedReader(new StringReader("C 3 3\nH 12 c\nP\n")), Channels.newChannel(binary)));
+		StringWriter text = new StringWriter();
+		assertEquals(2, converter.toText(Channels.newChannel(new ByteArrayInputStream(binary.toByteArray())), text));
+		assertEquals("C 3 3\nP\n", text.toString());
+	}
+
+	@Test
+	public void splitReadsTest() throws IOException, MalformedCommandException {
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		BinaryCommandWriter writer = new BinaryCommandWriter(Channels.newChannel(binary));
+		for (int i = 0; i < 10000; ++i) {
+			lexer.lex("L " + i + " 1 " + (i * 300) + " 1", record);
+			writer.write(record);
+		}
+		writer.flush();
+		// one byte per read: every frame is split across reads
+		final ByteBuffer bytes = ByteBuffer.wrap(binary.toByteArray());
+		BinaryCommandReader reader = new BinaryCommandReader(new ReadableByteChannel() {
+			public boolean isOpen() { return true; }
+			public void close() {}
+			public int read(ByteBuffer dst) {
+				if (!bytes.hasRemaining()) return -1;
+				dst.put(bytes.get());
+				return 1;
+			}
+		}, lexer);
+		for (int i = 0; i < 10000; ++i) {
+			assertTrue(reader.next(record));
+			assertEquals('L', record.getOpcode());
+			assertEquals(i, record.getNumber(0));
+			assertEquals(i * 300, record.getNumber(2));
+		}
+		assertFalse(reader.next(record));
+		assertFalse(reader.next(record));
+	}
+
+	@Test
+	public void malformedTest() throws IOException {
+		byte[][] streams = {
+				{'C', 20},                                   // truncated
+				{'W', 1},                                    // unknown opcode
+				{'c', 1, 1},                                 // lowercase opcode
+				{'X', 1, 1, 1, 'X', 1, 1, 1, 'Q'},           // nested loop
+				{'C', (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F, 1},  // over Integer.MAX_VALUE
+				{'C', (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 1}, // varint too long
+				{'B', 1, 1, '|'},                            // border symbol
+				{'X', 2, 1, 0, 'B', 1, 1, 7},                // control byte as symbol
+		};
+		for (byte[] stream : streams) {
+			BinaryCommandReader reader = new BinaryCommandReader(Channels.newChannel(new ByteArrayInputStream(stream)), lexer);
+			try {
+				reader.next(record);
+				fail();
+			} catch (MalformedCommandException e) {}
+		}
+	}
+
+	@Test
+	public void executeTest() throws IOException, MalformedCommandException, CanvasNotSupportedException, CommandNotSupportedException {
+		final String script = "C 20 4\nL 1 2 6 2\nL 6 3 6 4\nR 14 1 18 3\nB 10 3 o\n";
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		new ScriptConverter(lexer).toBinary(new BufferedReader(new StringReader(script)), Channels.newChannel(binary));
+		CommandFactory cmdf = CommandFactory.init();
+		Canvas fromText = CanvasFactory.init().getCanvas("2D");
+		for (String line : script.split("\n")) {
+			lexer.lex(line, record);
+			cmdf.executeCommand(fromText, record);
+		}
+		Canvas fromBinary = CanvasFactory.init().getCanvas("2D");
+		BinaryCommandReader reader = new BinaryCommandReader(Channels.newChannel(new ByteArrayInputStream(binary.toByteArray())), lexer);
+		while (reader.next(record)) cmdf.executeCommand(fromBinary, record);
+		assertEquals(fromText.toString(), fromBinary.toString());
+		String result = "----------------------\n"+
+						"|oooooooooooooxxxxxoo|\n"+
+						"|xxxxxxooooooox   xoo|\n"+
+						"|     xoooooooxxxxxoo|\n"+
+						"|     xoooooooooooooo|\n"+
+						"----------------------\n";
+		assertEquals(result, fromBinary.toString());
+	}
+}
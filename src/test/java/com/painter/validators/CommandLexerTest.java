@@ -0,0 +1,102 @@
+/**
+ * TDD tests with Junit
+ * @author Attilio Caravelli
+ *
+ */
+package com.painter.validators;
+
+import static org.junit.Assert.*;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.painter.exceptions.factories.RuleNotSupportedException;
+import com.painter.factories.RuleFactory;
+import com.painter.models.Rule;
+import com.painter.parsers.CommandLexer;
+import com.painter.parsers.CommandRecord;
+
+
+public class CommandLexerTest {
+
+	private final RuleFactory rf = RuleFactory.init();
+	private final CommandLexer lexer = new CommandLexer(rf);
+	private final CommandRecord record = new CommandRecord();
+
+	@Test
+	public void basicsTest() {
+		assertTrue(lexer.lex("B 12 3 c", record));
+		assertEquals('B', record.getOpcode());
+		assertEquals(3, record.getArgCount());
+		assertEquals(12, record.getNumber(0));
+		assertEquals(3, record.getNumber(1));
+		assertEquals('c', record.getSymbol(2));
+		assertArrayEquals(new String[] {"B", "12", "3", "c"}, record.toParts());
+		assertTrue(lexer.lex("Q", record));
+		assertEquals(0, record.getArgCount());
+	}
+
+	@Test
+	public void sameGrammarAsRulesTest() throws RuleNotSupportedException {
+		String[] lines = {"C 2 1", "L 2 1 3 2", "R 2 1 3 2", "B 2 1 c", "Q", "E 3 3 1 2", "K 1 1 2 2 a", "S 1 1 a", "Y 1 1 2 2 3 3",
+				"c 2 1", "q", "B 2 1 ", "B 2 1 c1", "B 2 1 1", "C 2 1 1", "Q ", "Q1", "C  2 1", "C 2\t1", "W 1", "", "C -1 2", "C 007 1"};
+		for (String line : lines) {
+			boolean expected = false;
+			if (!line.isEmpty() && Pattern.compile(rf.getRule(RuleFactory.COMMAND).toString()).matcher(line).find()) {
+				try {
+					expected = Pattern.compile(rf.getRule(line.substring(0, 1)).toString()).matcher(line).find();
+				} catch (RuleNotSupportedException e) {}
+			}
+			assertEquals(line, expected, lexer.lex(line, record));
+		}
+	}
+
+	@Test
+	public void nestedCommandsTest() {
+		assertTrue(lexer.lex("X 10 0 2 L 1 1 20 1", record));
+		assertEquals('X', record.getOpcode());
+		assertArrayEquals(new String[] {"X", "10", "0", "2", "L", "1", "1", "20", "1"}, record.toParts());
+		assertTrue(record.isSymbol(3));
+		assertTrue(lexer.lex("X 3 1 1 B 2 2 c", record));
+		assertEquals('c', record.getSymbol(6));
+		String[] invalid = {"X 10 0 2", "X 10 0 2 ", "X 10 0 2 L 1 1 20", "X 10 0 2 L 1 1 20 1 ", "X 10 0 2 l 1 1 20 1",
+				"X 10 0 2 W 1", "X 1 1 1 X 1 1 1 Q", "X 10 0 2 L  1 1 20 1", "X 10 -1 2 Q"};
+		for (String line : invalid) assertFalse(line, lexer.lex(line, record));
+	}
+
+	@Test
+	public void dynamicRulesTest() {
+		rf.addRule("T", () -> new Rule("^([A-Z])\\s(\\d+)\\s(\\d+)$"));
+		rf.addRule("H", () -> new Rule("^H\\s(\\d{1,2})\\s([a-z])$"));
+		CommandLexer dynamic = new CommandLexer(rf);
+		assertTrue(dynamic.lex("T 4 5", record));
+		assertEquals(5, record.getNumber(1));
+		// decomposed from a custom regular expression
+		assertTrue(dynamic.lex("H 42 c", record));
+		assertEquals(42, record.getNumber(0));
+		assertEquals('c', record.getSymbol(1));
+		assertFalse(dynamic.lex("H 421 c", record));
+	}
+
+	@Test
+	public void rulesAddedLaterTest() {
+		assertFalse(lexer.lex("T 4 5", record));
+		rf.addRule("T", () -> new Rule("^([A-Z])\\s(\\d+)\\s(\\d+)$"));
+		assertTrue(lexer.lex("T 4 5", record));
+		assertEquals(5, record.getNumber(1));
+		// a replaced rule
+		assertTrue(lexer.lex("B 2 1 c", record));
+		rf.addRule("B", () -> new Rule("^B\\s(\\d+)$"));
+		assertFalse(lexer.lex("B 2 1 c", record));
+		assertTrue(lexer.lex("B 2", record));
+	}
+
+	@Test
+	public void edgeCasesOverflowTest() {
+		assertTrue(lexer.lex("C 2147483647 1", record));
+		assertEquals(Integer.MAX_VALUE, record.getNumber(0));
+		assertFalse(lexer.lex("C 2147483648 1", record));
+		assertFalse(lexer.lex("C 99999999999999999999999 1", record));
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ * TDD tests with Junit
+ * @author Attilio Caravelli
+ *
+ */
+package com.painter.validators;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.painter.exceptions.factories.CanvasNotSupportedException;
+import com.painter.exceptions.factories.CommandNotSupportedException;
+import com.painter.factories.CanvasFactory;
+import com.painter.factories.CommandFactory;
+import com.painter.factories.RuleFactory;
+import com.painter.models.canvas.TwoDimCanvas;
+import com.painter.parsers.CommandBatch;
+import com.painter.parsers.CommandLexer;
+import com.painter.parsers.CommandRecord;
+import com.painter.parsers.ScriptOptimizer;
+
+
+public class ScriptOptimizerTest {
+
+	private final CommandLexer lexer = new CommandLexer(RuleFactory.init());
+	private final CommandRecord record = new CommandRecord();
+
+	private CommandBatch batch(String... lines) {
+		CommandBatch batch = new CommandBatch();
+		for (String line : lines) {
+			if (line.isEmpty()) batch.addBlank();
+			else if (lexer.lex(line, record)) batch.add(record);
+			else batch.addInvalid();
+		}
+		return batch;
+	}
+
+	// printed canvas and lines of the reported errors
+	private String run(CommandBatch batch) throws CanvasNotSupportedException {
+		TwoDimCanvas canvas = (TwoDimCanvas) CanvasFactory.init().getCanvas("2D");
+		CommandFactory cmdf = CommandFactory.init();
+		StringBuilder errors = new StringBuilder();
+		for (int i = 0; i < batch.size(); ++i) {
+			if (!batch.isValid(i)) continue;
+			batch.load(i, record);
+			if (record.getOpcode() == 'Q') break;
+			try {
+				cmdf.executeCommand(canvas, record);
+				if (cmdf.getRejection() != null) errors.append(i).append(' ');
+			} catch (CommandNotSupportedException e) {
+				errors.append(i).append(' ');
+			}
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		canvas.print(new PrintStream(out));
+		return out + "errors: " + errors;
+	}
+
+	private String kept(CommandBatch batch) {
+		StringBuilder kept = new StringBuilder();
+		for (int i = 0; i < batch.size(); ++i) {
+			if (batch.isBlank(i)) continue;
+			if (!batch.isValid(i)) kept.append("? ");
+			else kept.append(batch.getOpcode(i)).append(i).append(' ');
+		}
+		return kept.toString().trim();
+	}
+
+	private ScriptOptimizer optimizer() throws CanvasNotSupportedException {
+		return new ScriptOptimizer((TwoDimCanvas) CanvasFactory.init().getCanvas("2D"));
+	}
+
+	@Test
+	public void basicsTest() throws CanvasNotSupportedException {
+		CommandBatch batch = batch("C 5 5", "L 1 1 5 1", "B 1 3 o", "C 0 3", "C 4 4", "L 1 1 4 1", "bad", "L 1 1 4 1", "B 2 2 a", "R 1 1 2 2",
+				"B 2 2 b", "L 1 1 4 1", "Q", "L 1 2 4 2", "C 3 3");
+		String expected = run(batch);
+		assertEquals(8, optimizer().optimize(batch));
+		assertEquals("C3 C4 L5 ? B8 R9 Q12", kept(batch));
+		assertEquals(expected, run(batch));
+	}
+
+	@Test
+	public void observersTest() throws CanvasNotSupportedException {
+		// the sprite survives the C, the checkpoint sees the canvas
+		CommandBatch batch = batch("C 5 5", "L 1 1 5 1", "K 1 1 2 1 a", "L 1 5 5 5", "C 5 5", "R 1 1 3 3", "P", "W 1", "C 5 5", "S 2 2 a", "V 1 1 2 2", "C 6 6");
+		optimizer().optimize(batch);
+		assertEquals("C0 L1 K2 C4 R5 P6 ? C8 S9 V10 C11", kept(batch));
+		// loops are strokes of their body
+		batch = batch("C 9 9", "X 3 0 2 L 1 1 9 1", "X 3 0 2 L 1 1 9 1", "X 3 0 2 B 1 2 a", "X 3 0 2 B 1 2 b", "X 3 0 1 B 1 2 b", "X 2 1 1 K 1 1 2 2 a", "C 9 9");
+		assertEquals(2, optimizer().optimize(batch));
+		assertEquals("C0 X1 X3 X5 X6 C7", kept(batch));
+	}
+
+	@Test
+	public void rejectionsTest() throws CanvasNotSupportedException {
+		// the view needs the first canvas
+		CommandBatch batch = batch("C 10 10", "V 5 5 2 2", "C 20 20");
+		String expected = run(batch);
+		assertEquals(0, optimizer().optimize(batch));
+		assertEquals(expected, run(batch));
+		// the rejected line is still reported
+		batch = batch("C 10 10", "L 1 1 50 1", "C 20 3");
+		expected = run(batch);
+		assertEquals(0, optimizer().optimize(batch));
+		assertEquals(expected, run(batch));
+		// strokes crossing another symbol are rejected: they and the fill are kept
+		batch = batch("C 5 5", "L 1 1 5 1", "B 1 3 o", "L 1 3 5 3", "L 1 1 5 1", "L 1 3 5 3", "R 1 1 3 3", "C 5 5");
+		expected = run(batch);
+		assertEquals(1, optimizer().optimize(batch));
+		assertEquals("C0 L1 B2 L3 L5 R6 C7", kept(batch));
+		assertEquals(expected, run(batch));
+	}
+
+	@Test
+	public void sameCanvasTest() throws CanvasNotSupportedException {
+		// random scripts on a small canvas: same output and errors with and without the dead commands
+		Random random = new Random(42);
+		String[] opcodes = {"L", "R", "D", "F", "E", "B", "S", "K", "Y", "C", "X", "V", "Z"};
+		for (int script = 0; script < 200; ++script) {
+			String[] lines = new String[60];
+			for (int i = 0; i < lines.length; ++i) {
+				String opcode = opcodes[random.nextInt(opcodes.length)];
+				int a = random.nextInt(9), b = random.nextInt(9), c = random.nextInt(9), d = random.nextInt(9);
+				char color = (char) ('a' + random.nextInt(3));
+				switch (opcode) {
+				case "B": lines[i] = "B " + a + " " + b + " " + color; break;
+				case "S": lines[i] = "S " + a + " " + b + " " + color; break;
+				case "K": lines[i] = "K " + a + " " + b + " " + c + " " + d + " " + color; break;
+				case "Y": lines[i] = "Y " + a + " " + b + " " + c + " " + d + " " + random.nextInt(9) + " " + random.nextInt(9); break;
+				case "C": lines[i] = random.nextInt(4) == 0 ? "C 7 7" : "C " + a + " " + (1 + b); break;
+				case "X": lines[i] = "X " + (1 + a % 3) + " " + b % 3 + " " + c % 3 + " " + (random.nextBoolean() ? "L 1 " + d + " 7 " + d : "B 1 " + d + " " + color); break;
+				case "Z": lines[i] = "Z " + a % 3; break;
+				case "E": lines[i] = "E " + a + " " + b + " " + c % 3 + " " + d % 3; break;
+				default: lines[i] = opcode + " " + a + " " + b + " " + (random.nextBoolean() ? a : c) + " " + (random.nextBoolean() ? b : d);
+				}
+				// repeat earlier commands
+				if (i > 0 && random.nextInt(4) == 0) lines[i] = lines[random.nextInt(i)];
+			}
+			CommandBatch batch = batch(lines);
+			String expected = run(batch);
+			optimizer().optimize(batch);
+			assertEquals(String.join("\n", lines), expected, run(batch));
+		}
+	}
+}